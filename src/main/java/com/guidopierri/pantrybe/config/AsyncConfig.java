@@ -0,0 +1,39 @@
+package com.guidopierri.pantrybe.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs the asynchronous responses, e.g. the streamed searches, on a bounded pool instead of a thread per request.
+ * <p>
+ * At most {@code web.async.pool-size} responses are written at the same time and {@code web.async.queue-capacity}
+ * wait for a thread; further requests are rejected. A response that takes longer than
+ * {@code spring.mvc.async.request-timeout}, which Spring Boot applies, is cancelled, which interrupts the thread
+ * writing it.
+ */
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+    @Value("${web.async.pool-size:8}")
+    private int poolSize;
+    @Value("${web.async.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+}
@@ -1,34 +1,59 @@
 package com.guidopierri.pantrybe.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemCursorPage;
 import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemSearchPage;
+import com.guidopierri.pantrybe.dtos.responses.FederatedSearchResponse;
+import com.guidopierri.pantrybe.dtos.responses.ImportJobResponse;
+import com.guidopierri.pantrybe.dtos.responses.SuggestionResponse;
+import com.guidopierri.pantrybe.models.Allergen;
 import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.ImportMode;
+import com.guidopierri.pantrybe.models.SearchCountMode;
+import com.guidopierri.pantrybe.models.SearchOrder;
+import com.guidopierri.pantrybe.models.SearchParams;
 import com.guidopierri.pantrybe.services.DabasDataService;
-import com.guidopierri.pantrybe.services.DabasImportService;
 import com.guidopierri.pantrybe.services.DabasSearchService;
+import com.guidopierri.pantrybe.services.ImportJobService;
+import com.guidopierri.pantrybe.services.imports.ImportJob;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
 @RestController
+@Validated
 @RequestMapping("/api/v1/search")
 public class DabasController {
     private static final Logger log = LoggerFactory.getLogger(DabasController.class);
     private final DabasDataService dabasDataService;
     private final DabasSearchService dabasSearchService;
-    private final DabasImportService dabasImportService;
+    private final ImportJobService importJobService;
+    private final ObjectMapper objectMapper;
 
-    public DabasController(DabasDataService dabasDataService, DabasSearchService dabasSearchService, DabasImportService dabasImportService) {
+    public DabasController(DabasDataService dabasDataService, DabasSearchService dabasSearchService, ImportJobService importJobService,
+                           ObjectMapper objectMapper) {
         this.dabasDataService = dabasDataService;
         this.dabasSearchService = dabasSearchService;
-        this.dabasImportService = dabasImportService;
+        this.importJobService = importJobService;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(summary = "Get a product by gtin number.")
@@ -44,6 +69,24 @@ public class DabasController {
         return new ResponseEntity<>(dabasDataService.search(searchParameter), HttpStatus.OK);
     }
 
+    @Operation(summary = "Stream all products by search parameter as newline delimited JSON, each one as soon as it is found.")
+    @GetMapping(value = "/parameter/{searchParameter}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamProductsBySearchParameter(@PathVariable String searchParameter) {
+        ObjectWriter writer = objectMapper.writerFor(DabasItemResponse.class);
+        StreamingResponseBody body = output -> {
+            try {
+                dabasDataService.streamSearch(searchParameter, item -> {
+                    output.write(writer.writeValueAsBytes(item));
+                    output.write('\n');
+                    output.flush();
+                });
+            } catch (IOException e) {
+                log.debug("Stopped streaming the search for {}: {}", searchParameter, e.getMessage());
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(summary = "Get all products paginated by search parameter.")
     @GetMapping("/paginated/parameter/{searchParameter}")
     public ResponseEntity<Page<DabasItemResponse>> getAllProductsBySearchParameterPageable(
@@ -61,10 +104,79 @@ public class DabasController {
 
     }
 
-    @Operation(summary = "Import all articles from DABAS API.")
-    @GetMapping("/import")
-    public ResponseEntity<List<DabasItemResponse>> importArticles() throws Exception {
-        return new ResponseEntity<>(dabasImportService.importArticlesGtin(), HttpStatus.OK);
+    @Operation(summary = "Suggest product names and brands completing the text typed so far.")
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(dabasSearchService.suggest(q, limit));
+    }
+
+    @Operation(summary = "Search the imported products and DABAS API in parallel, returning what has arrived by the deadline.")
+    @GetMapping("/federated")
+    public ResponseEntity<FederatedSearchResponse> federatedSearch(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) Long deadlineMillis) {
+        return ResponseEntity.ok(dabasSearchService.federatedSearch(q, limit,
+                deadlineMillis == null ? null : Duration.ofMillis(Math.max(0, deadlineMillis))));
+    }
+
+    @Operation(summary = "Search the imported products, one page after the other.")
+    @GetMapping("/catalog")
+    public ResponseEntity<DabasItemCursorPage> searchCatalog(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) int size) {
+        SearchParams searchParams = new SearchParams();
+        searchParams.setFreeTextSearch(q);
+        return ResponseEntity.ok(dabasDataService.search(searchParams, cursor, size));
+    }
+
+    @Operation(summary = "Search the imported products by page, by name or by relevance, filtered by allergens and ingredients, with an exact, approximate or no total, and counts per category and brand.")
+    @GetMapping("/catalog/page")
+    public ResponseEntity<DabasItemSearchPage> searchCatalogPage(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "20") @Min(1) int size,
+            @RequestParam(defaultValue = "NONE") SearchCountMode count,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(defaultValue = "NAME") SearchOrder order,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) List<Allergen> allergens,
+            @RequestParam(required = false) List<Allergen> withoutAllergens,
+            @RequestParam(required = false) List<String> ingredients,
+            @RequestParam(required = false) List<String> withoutIngredients,
+            @RequestParam(defaultValue = "0") int facets) {
+        SearchParams searchParams = new SearchParams();
+        searchParams.setFreeTextSearch(q);
+        searchParams.setFuzzy(fuzzy);
+        searchParams.setOrder(order);
+        searchParams.setCategory(category);
+        searchParams.setBrand(brand);
+        searchParams.setContainsAllergens(allergens);
+        searchParams.setWithoutAllergens(withoutAllergens);
+        searchParams.setIngredients(ingredients);
+        searchParams.setWithoutIngredients(withoutIngredients);
+        return ResponseEntity.ok(dabasDataService.search(searchParams, PageRequest.of(page, DabasDataService.pageSize(size)), count, facets));
+    }
+
+    @Operation(summary = "Start an import of all articles from DABAS API in the background.")
+    @PostMapping("/import")
+    public ResponseEntity<ImportJobResponse> importArticles(@RequestParam(defaultValue = "FULL") ImportMode mode) {
+        ImportJob job = importJobService.submit(mode);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/search/import/" + job.getId()))
+                .body(job.toResponse());
+    }
+
+    @Operation(summary = "Get the progress of an import job.")
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJobResponse> getImportJob(@PathVariable String jobId) {
+        return importJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toResponse()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @Operation(summary = "Sanitize all articles imported from DABAS API.")
@@ -0,0 +1,6 @@
+package com.guidopierri.pantrybe.dtos;
+
+public record DabasItemIndexEntry(long id, String name, String brand, String category, String ingredients,
+                                  String allergens) {
+
+}
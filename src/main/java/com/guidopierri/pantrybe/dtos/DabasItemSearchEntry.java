@@ -0,0 +1,5 @@
+package com.guidopierri.pantrybe.dtos;
+
+public record DabasItemSearchEntry(long id, String name, String brand) {
+
+}
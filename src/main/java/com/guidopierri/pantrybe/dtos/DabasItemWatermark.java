@@ -0,0 +1,5 @@
+package com.guidopierri.pantrybe.dtos;
+
+public record DabasItemWatermark(String gtin, String lastModified) {
+
+}
@@ -0,0 +1,5 @@
+package com.guidopierri.pantrybe.dtos;
+
+public record ItemNameCount(String name, long count) {
+
+}
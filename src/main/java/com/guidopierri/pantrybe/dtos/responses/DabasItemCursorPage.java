@@ -0,0 +1,12 @@
+package com.guidopierri.pantrybe.dtos.responses;
+
+import java.util.List;
+
+/**
+ * A page of a keyset paginated search.
+ *
+ * @param content    The articles of the page.
+ * @param nextCursor The cursor to pass to fetch the next page, or null if this is the last page.
+ */
+public record DabasItemCursorPage(List<DabasItemResponse> content, String nextCursor) {
+}
@@ -0,0 +1,13 @@
+package com.guidopierri.pantrybe.dtos.responses;
+
+import java.util.List;
+
+/**
+ * The number of results of a search per facet value, the most frequent values first.
+ *
+ * @param categories The number of results per category.
+ * @param brands     The number of results per brand.
+ */
+public record DabasItemFacets(List<FacetCount> categories,
+                              List<FacetCount> brands) {
+}
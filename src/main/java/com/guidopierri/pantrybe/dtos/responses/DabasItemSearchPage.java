@@ -0,0 +1,23 @@
+package com.guidopierri.pantrybe.dtos.responses;
+
+import java.util.List;
+
+/**
+ * A page of a search.
+ *
+ * @param content    The articles of the page.
+ * @param page       The number of the page, starting from 0.
+ * @param size       The requested number of articles per page.
+ * @param hasNext    Whether there is a next page.
+ * @param total      The total number of results, or null if they were not counted.
+ * @param totalExact Whether the total is exact, or an estimate.
+ * @param facets     The number of results per category and brand, or null if they were not requested or counted.
+ */
+public record DabasItemSearchPage(List<DabasItemResponse> content,
+                                  int page,
+                                  int size,
+                                  boolean hasNext,
+                                  Long total,
+                                  boolean totalExact,
+                                  DabasItemFacets facets) {
+}
@@ -0,0 +1,4 @@
+package com.guidopierri.pantrybe.dtos.responses;
+
+public record FacetCount(String value, long count) {
+}
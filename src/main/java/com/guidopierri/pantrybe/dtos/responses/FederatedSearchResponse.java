@@ -0,0 +1,13 @@
+package com.guidopierri.pantrybe.dtos.responses;
+
+import java.util.List;
+
+/**
+ * The merged results of a search of the local catalog and of the DABAS API.
+ *
+ * @param content The articles found, the local ones first, without duplicate GTINs.
+ * @param partial Whether the DABAS API did not answer before the deadline, or failed, so only the local results
+ *                and the DABAS results that had arrived are included.
+ */
+public record FederatedSearchResponse(List<DabasItemResponse> content, boolean partial) {
+}
@@ -0,0 +1,27 @@
+package com.guidopierri.pantrybe.dtos.responses;
+
+import com.guidopierri.pantrybe.models.ImportMode;
+import com.guidopierri.pantrybe.services.imports.ImportJob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ImportJobResponse(String jobId,
+                                ImportJob.Status status,
+                                ImportMode mode,
+                                Long runId,
+                                LocalDateTime submittedAt,
+                                LocalDateTime startedAt,
+                                LocalDateTime finishedAt,
+                                long listed,
+                                long submitted,
+                                long written,
+                                long notFound,
+                                long failed,
+                                double articlesPerSecond,
+                                long retried,
+                                long recovered,
+                                long errorCount,
+                                List<String> recentErrors,
+                                ImportSummary summary) {
+}
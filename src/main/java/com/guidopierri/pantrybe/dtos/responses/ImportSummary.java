@@ -0,0 +1,15 @@
+package com.guidopierri.pantrybe.dtos.responses;
+
+import com.guidopierri.pantrybe.models.ImportMode;
+
+public record ImportSummary(long runId,
+                            ImportMode mode,
+                            long listed,
+                            long written,
+                            long notFound,
+                            long failed,
+                            long skipped,
+                            long deleted,
+                            long elapsedMillis,
+                            double articlesPerSecond) {
+}
@@ -1,9 +1,29 @@
 package com.guidopierri.pantrybe.exceptions.advicers;
 
+import com.guidopierri.pantrybe.exceptions.DataValidationException;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ControllerAdvice
 public class DabasDataAdvice {
+    @ResponseBody
+    @ExceptionHandler(DataValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String dataValidationHandler(DataValidationException ex) {
+        return ex.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String constraintViolationHandler(ConstraintViolationException ex) {
+        return ex.getMessage();
+    }
+
        /* @ResponseBody
         @ExceptionHandler(DataValidationException.class)
         @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
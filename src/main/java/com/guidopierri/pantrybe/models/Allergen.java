@@ -0,0 +1,44 @@
+package com.guidopierri.pantrybe.models;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The allergens declared in DABAS articles, with their GS1 allergen type codes ({@code Allergenkod}).
+ * <p>
+ * An article declares each allergen with a level of containment ({@code Nivakod}): it either contains it, may
+ * contain traces of it, or is free from it.
+ */
+public enum Allergen {
+    GLUTEN("AW"),
+    CRUSTACEANS("AC"),
+    EGGS("AE"),
+    FISH("AF"),
+    PEANUTS("AP"),
+    SOY("AY"),
+    MILK("AM"),
+    TREE_NUTS("AN"),
+    CELERY("BC"),
+    MUSTARD("BM"),
+    SESAME("AS"),
+    SULPHITES("AU"),
+    LUPIN("NL"),
+    MOLLUSCS("UM");
+
+    public static final String CONTAINS = "CONTAINS";
+    public static final String MAY_CONTAIN = "MAY_CONTAIN";
+
+    private final String code;
+
+    Allergen(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public static Optional<Allergen> fromCode(String code) {
+        return Arrays.stream(values()).filter(allergen -> allergen.code.equals(code)).findFirst();
+    }
+}
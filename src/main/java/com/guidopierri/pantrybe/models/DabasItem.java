@@ -1,5 +1,7 @@
 package com.guidopierri.pantrybe.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.guidopierri.pantrybe.services.search.SearchText;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -22,6 +24,18 @@ public class DabasItem implements GenericItem {
     private String productClassifications;
     private String bruteWeight;
     private String drainedWeight;
+    private String lastModified;
+    /**
+     * The declared allergens, see {@link com.guidopierri.pantrybe.services.client.DabasArticleReader}.
+     */
+    @Column(length = 1000)
+    private String allergens;
+    /**
+     * The folded tokens of the name and the brand, see {@link SearchText#of}. It is derived from them whenever the
+     * item is written, and matched by the free text search instead of the name and the brand.
+     */
+    @Column(name = "search_text", length = 511)
+    private String searchText;
 
     public long getId() {
         return id;
@@ -111,6 +125,33 @@ public class DabasItem implements GenericItem {
         this.drainedWeight = drainedWeight;
     }
 
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getAllergens() {
+        return allergens;
+    }
+
+    public void setAllergens(String allergens) {
+        this.allergens = allergens;
+    }
+
+    @JsonIgnore
+    public String getSearchText() {
+        return searchText;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateSearchText() {
+        this.searchText = SearchText.of(name, brand);
+    }
+
     @Override
     public String toString() {
         return "DabasItem{" +
@@ -125,6 +166,8 @@ public class DabasItem implements GenericItem {
                 ", productClassifications='" + productClassifications + '\'' +
                 ", bruteWeight='" + bruteWeight + '\'' +
                 ", drainedWeight='" + drainedWeight + '\'' +
+                ", lastModified='" + lastModified + '\'' +
+                ", allergens='" + allergens + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,65 @@
+package com.guidopierri.pantrybe.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A trigram of the name or brand of a {@link DabasItem}, used to narrow down substring searches.
+ *
+ * @see com.guidopierri.pantrybe.services.search.Trigrams
+ */
+@Entity
+@Table(name = "dabas_item_trigram")
+@IdClass(DabasItemTrigram.Key.class)
+public class DabasItemTrigram {
+    @Id
+    private long trigram;
+    @Id
+    @Column(name = "item_id")
+    private long itemId;
+
+    public DabasItemTrigram() {
+    }
+
+    public DabasItemTrigram(long trigram, long itemId) {
+        this.trigram = trigram;
+        this.itemId = itemId;
+    }
+
+    public long getTrigram() {
+        return trigram;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private long trigram;
+        private long itemId;
+
+        public Key() {
+        }
+
+        public Key(long trigram, long itemId) {
+            this.trigram = trigram;
+            this.itemId = itemId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return trigram == key.trigram && itemId == key.itemId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(trigram, itemId);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.guidopierri.pantrybe.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed range of listing positions of an {@link ImportRun}.
+ */
+@Entity
+@Table(name = "dabas_import_chunk")
+public class ImportChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+    private long runId;
+    private long chunkIndex;
+    private long startPosition;
+    private long endPosition;
+    private long written;
+    private long notFound;
+    private long failed;
+    private long skipped;
+    private LocalDateTime committedAt;
+
+    public ImportChunk() {
+    }
+
+    public ImportChunk(long runId, long chunkIndex, long startPosition, long endPosition,
+                       long written, long notFound, long failed, long skipped) {
+        this.runId = runId;
+        this.chunkIndex = chunkIndex;
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
+        this.written = written;
+        this.notFound = notFound;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.committedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Adds the progress of a chunk that is committed again, e.g. the partial last chunk of a run resumed from its
+     * cursor, to the progress committed before.
+     */
+    public void extend(long endPosition, long written, long notFound, long failed, long skipped) {
+        this.endPosition = endPosition;
+        this.written += written;
+        this.notFound += notFound;
+        this.failed += failed;
+        this.skipped += skipped;
+        this.committedAt = LocalDateTime.now();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getRunId() {
+        return runId;
+    }
+
+    public long getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public long getStartPosition() {
+        return startPosition;
+    }
+
+    public long getEndPosition() {
+        return endPosition;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public long getNotFound() {
+        return notFound;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public LocalDateTime getCommittedAt() {
+        return committedAt;
+    }
+}
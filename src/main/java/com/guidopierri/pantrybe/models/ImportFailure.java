@@ -0,0 +1,70 @@
+package com.guidopierri.pantrybe.models;
+
+import jakarta.persistence.*;
+
+/**
+ * An article of an {@link ImportRun} that could not be imported and is waiting to be retried.
+ */
+@Entity
+@Table(name = "dabas_import_failure")
+public class ImportFailure {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+    private long runId;
+    private String gtin;
+    private String lastModified;
+    @Column(name = "listing_position")
+    private long position;
+    @Column(length = 1024)
+    private String error;
+    private int attempts;
+
+    public ImportFailure() {
+    }
+
+    public ImportFailure(long runId, String gtin, String lastModified, long position, String error) {
+        this.runId = runId;
+        this.gtin = gtin;
+        this.lastModified = lastModified;
+        this.position = position;
+        this.error = error;
+        this.attempts = 1;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getRunId() {
+        return runId;
+    }
+
+    public String getGtin() {
+        return gtin;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
@@ -0,0 +1,15 @@
+package com.guidopierri.pantrybe.models;
+
+/**
+ * Determines which articles of the DABAS listing are fetched by an import.
+ */
+public enum ImportMode {
+    /**
+     * Fetch every article in the listing.
+     */
+    FULL,
+    /**
+     * Fetch only articles that are new or whose SenastAndradDatum differs from the stored watermark.
+     */
+    DELTA
+}
@@ -0,0 +1,120 @@
+package com.guidopierri.pantrybe.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A single run of the DABAS import, including the checkpoint it can be resumed from.
+ */
+@Entity
+@Table(name = "dabas_import_run")
+public class ImportRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+    @Enumerated(EnumType.STRING)
+    private ImportMode mode;
+    @Enumerated(EnumType.STRING)
+    private ImportRunStatus status;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long cursorPosition;
+    private long written;
+    private long notFound;
+    private long failed;
+    private long skipped;
+
+    public ImportRun() {
+    }
+
+    public ImportRun(ImportMode mode) {
+        this.mode = mode;
+        this.status = ImportRunStatus.RUNNING;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public ImportMode getMode() {
+        return mode;
+    }
+
+    public ImportRunStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ImportRunStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getCursorPosition() {
+        return cursorPosition;
+    }
+
+    public void setCursorPosition(long cursorPosition) {
+        this.cursorPosition = cursorPosition;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public void setWritten(long written) {
+        this.written = written;
+    }
+
+    public long getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(long notFound) {
+        this.notFound = notFound;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportRun{" +
+                "id=" + id +
+                ", mode=" + mode +
+                ", status=" + status +
+                ", startedAt=" + startedAt +
+                ", finishedAt=" + finishedAt +
+                ", cursorPosition=" + cursorPosition +
+                ", written=" + written +
+                ", notFound=" + notFound +
+                ", failed=" + failed +
+                ", skipped=" + skipped +
+                '}';
+    }
+}
@@ -0,0 +1,7 @@
+package com.guidopierri.pantrybe.models;
+
+public enum ImportRunStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,19 @@
+package com.guidopierri.pantrybe.models;
+
+/**
+ * Determines how the total number of results of a paginated search is computed.
+ */
+public enum SearchCountMode {
+    /**
+     * Count the results with a count query on every page.
+     */
+    EXACT,
+    /**
+     * Return a cached total, refreshed in the background, or a lower bound until one is available.
+     */
+    APPROXIMATE,
+    /**
+     * Do not count the results, only tell whether there is a next page.
+     */
+    NONE
+}
@@ -0,0 +1,15 @@
+package com.guidopierri.pantrybe.models;
+
+/**
+ * Determines the order of the results of a catalog search.
+ */
+public enum SearchOrder {
+    /**
+     * Order the results by name.
+     */
+    NAME,
+    /**
+     * Order the results by their relevance to the free text search, the best matches first.
+     */
+    RELEVANCE
+}
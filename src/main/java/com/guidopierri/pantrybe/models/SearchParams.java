@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
 import java.io.Serializable;
+import java.util.List;
 
 @Data
 @SuperBuilder
@@ -19,6 +20,37 @@ public class SearchParams implements Serializable {
     @Nullable
     private String freeTextSearch;
 
+    @Schema(description = "Also match the words of the free text search to names and brands with small typos")
+    private boolean fuzzy;
+
+    @Schema(description = "Order of the results, by name if null")
+    @Nullable
+    private SearchOrder order;
+
+    @Schema(description = "Only articles of this category, or all if null")
+    @Nullable
+    private String category;
+
+    @Schema(description = "Only articles of this brand, or all if null")
+    @Nullable
+    private String brand;
+
+    @Schema(description = "Only articles containing all of these allergens, or all if null")
+    @Nullable
+    private List<Allergen> containsAllergens;
+
+    @Schema(description = "Only articles neither containing nor possibly containing any of these allergens, or all if null")
+    @Nullable
+    private List<Allergen> withoutAllergens;
+
+    @Schema(description = "Only articles with all of these words in their ingredients, or all if null")
+    @Nullable
+    private List<String> ingredients;
+
+    @Schema(description = "Only articles with none of these words in their ingredients, or all if null")
+    @Nullable
+    private List<String> withoutIngredients;
+
     @Nullable
     public String getFreeTextSearch() {
         return freeTextSearch;
@@ -0,0 +1,32 @@
+package com.guidopierri.pantrybe.repositories;
+
+import com.guidopierri.pantrybe.models.DabasItem;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+public interface DabasItemBulkRepository {
+
+    /**
+     * Inserts or updates the given items keyed by their GTIN.
+     * <p>
+     * The items are written in JDBC statement batches of {@code dabas.upsert.chunk-size} rows,
+     * using MERGE on SQL Server and H2. The id of the given items is ignored. Items without a GTIN are skipped,
+     * and of the items with the same GTIN only the last one is written.
+     * The search text and the trigrams of the written items are updated in the same transaction.
+     *
+     * @param items The items to write.
+     * @return The number of rows inserted or updated.
+     */
+    @Transactional
+    int upsertAll(Collection<DabasItem> items);
+
+    /**
+     * Rebuilds the search text and the trigrams of every item, e.g. for items written before the search text
+     * existed or with a previous normalization.
+     *
+     * @return The number of indexed items.
+     */
+    @Transactional
+    int reindexAllSearchTerms();
+}
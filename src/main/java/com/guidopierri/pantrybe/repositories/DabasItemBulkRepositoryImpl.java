@@ -0,0 +1,157 @@
+package com.guidopierri.pantrybe.repositories;
+
+import com.guidopierri.pantrybe.dtos.DabasItemSearchEntry;
+import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.DabasItemTrigram;
+import com.guidopierri.pantrybe.services.search.SearchText;
+import com.guidopierri.pantrybe.services.search.Trigrams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC implementation of {@link DabasItemBulkRepository}.
+ * <p>
+ * {@link DabasItem} uses an IDENTITY id, which prevents Hibernate from batching inserts,
+ * so the upsert bypasses the persistence context and sends MERGE statements in JDBC batches instead.
+ * The MERGE matches the rows by their GTIN, which is unique, so items without a GTIN are skipped, and only the
+ * last of the items with the same GTIN is written.
+ * <p>
+ * The {@link SearchText} of the written items is derived in the statement, and their {@link Trigrams} are replaced
+ * in the same transaction, so the search text and the trigram index never lag behind the items. Trigrams of deleted items are removed by the cascading foreign key.
+ */
+public class DabasItemBulkRepositoryImpl implements DabasItemBulkRepository {
+    private static final List<String> COLUMNS = List.of("gtin", "name", "brand", "image", "category", "size",
+            "ingredients", "product_classifications", "brute_weight", "drained_weight", "last_modified", "allergens", "search_text");
+    private static final int TRIGRAM_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+    private volatile String upsertSql;
+
+    public DabasItemBulkRepositoryImpl(JdbcTemplate jdbcTemplate, @Value("${dabas.upsert.chunk-size:100}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int upsertAll(Collection<DabasItem> items) {
+        Map<String, DabasItem> itemsByGtin = new LinkedHashMap<>();
+        for (DabasItem item : items) {
+            if (item.getGtin() != null) {
+                itemsByGtin.put(item.getGtin(), item);
+            }
+        }
+        if (itemsByGtin.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(getUpsertSql(), itemsByGtin.values(), chunkSize, DabasItemBulkRepositoryImpl::setValues);
+        List<String> gtins = new ArrayList<>(itemsByGtin.keySet());
+        for (int i = 0; i < gtins.size(); i += chunkSize) {
+            reindexTrigrams(gtins.subList(i, Math.min(i + chunkSize, gtins.size())));
+        }
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).map(count -> Math.max(count, 1)).sum();
+    }
+
+    @Override
+    public int reindexAllSearchTerms() {
+        jdbcTemplate.update("DELETE FROM dabas_item_trigram");
+        List<String> gtins = jdbcTemplate.queryForList("SELECT gtin FROM dabas_item WHERE gtin IS NOT NULL", String.class);
+        for (int i = 0; i < gtins.size(); i += chunkSize) {
+            List<DabasItemSearchEntry> entries = findSearchEntries(gtins.subList(i, Math.min(i + chunkSize, gtins.size())));
+            jdbcTemplate.batchUpdate("UPDATE dabas_item SET search_text = ? WHERE id = ?", entries, TRIGRAM_BATCH_SIZE,
+                    (statement, entry) -> {
+                        statement.setString(1, SearchText.of(entry.name(), entry.brand()));
+                        statement.setLong(2, entry.id());
+                    });
+            insertTrigrams(entries);
+        }
+        return gtins.size();
+    }
+
+    private void reindexTrigrams(List<String> gtins) {
+        List<DabasItemSearchEntry> entries = findSearchEntries(gtins);
+        if (entries.isEmpty()) {
+            return;
+        }
+        String ids = entries.stream().map(entry -> "?").collect(Collectors.joining(", "));
+        jdbcTemplate.update("DELETE FROM dabas_item_trigram WHERE item_id IN (" + ids + ")",
+                entries.stream().map(DabasItemSearchEntry::id).toArray());
+        insertTrigrams(entries);
+    }
+
+    private List<DabasItemSearchEntry> findSearchEntries(List<String> gtins) {
+        String parameters = gtins.stream().map(gtin -> "?").collect(Collectors.joining(", "));
+        return jdbcTemplate.query("SELECT id, name, brand FROM dabas_item WHERE gtin IN (" + parameters + ")",
+                (resultSet, row) -> new DabasItemSearchEntry(resultSet.getLong("id"), resultSet.getString("name"), resultSet.getString("brand")),
+                gtins.toArray());
+    }
+
+    private void insertTrigrams(List<DabasItemSearchEntry> entries) {
+        List<DabasItemTrigram> trigrams = new ArrayList<>();
+        for (DabasItemSearchEntry entry : entries) {
+            for (long trigram : Trigrams.ofTexts(entry.name(), entry.brand())) {
+                trigrams.add(new DabasItemTrigram(trigram, entry.id()));
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO dabas_item_trigram (trigram, item_id) VALUES (?, ?)", trigrams, TRIGRAM_BATCH_SIZE,
+                (statement, trigram) -> {
+                    statement.setLong(1, trigram.getTrigram());
+                    statement.setLong(2, trigram.getItemId());
+                });
+    }
+
+    private static void setValues(PreparedStatement statement, DabasItem item) throws SQLException {
+        statement.setString(1, item.getGtin());
+        statement.setString(2, item.getName());
+        statement.setString(3, item.getBrand());
+        statement.setString(4, item.getImage());
+        statement.setString(5, item.getCategory());
+        statement.setString(6, item.getSize());
+        statement.setString(7, item.getIngredients());
+        statement.setString(8, item.getProductClassifications());
+        statement.setString(9, item.getBruteWeight());
+        statement.setString(10, item.getDrainedWeight());
+        statement.setString(11, item.getLastModified());
+        statement.setString(12, item.getAllergens());
+        statement.setString(13, SearchText.of(item.getName(), item.getBrand()));
+    }
+
+    private String getUpsertSql() {
+        if (upsertSql == null) {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSql = buildUpsertSql(databaseProductName);
+        }
+        return upsertSql;
+    }
+
+    static String buildUpsertSql(String databaseProductName) {
+        String columns = String.join(", ", COLUMNS);
+        String parameters = COLUMNS.stream().map(column -> "?").collect(Collectors.joining(", "));
+        if ("H2".equals(databaseProductName)) {
+            return "MERGE INTO dabas_item (" + columns + ") KEY (gtin) VALUES (" + parameters + ")";
+        }
+        if ("Microsoft SQL Server".equals(databaseProductName)) {
+            List<String> updatedColumns = COLUMNS.subList(1, COLUMNS.size());
+            return "MERGE INTO dabas_item WITH (HOLDLOCK) AS target" +
+                    " USING (VALUES (" + parameters + ")) AS source (" + columns + ")" +
+                    " ON target.gtin = source.gtin" +
+                    " WHEN MATCHED THEN UPDATE SET " +
+                    updatedColumns.stream().map(column -> column + " = source." + column).collect(Collectors.joining(", ")) +
+                    " WHEN NOT MATCHED THEN INSERT (" + columns + ") VALUES (" +
+                    COLUMNS.stream().map(column -> "source." + column).collect(Collectors.joining(", ")) + ");";
+        }
+        throw new IllegalStateException("Upsert of DABAS items is not supported on " + databaseProductName);
+    }
+}
@@ -1,16 +1,47 @@
 package com.guidopierri.pantrybe.repositories;
 
+import com.guidopierri.pantrybe.dtos.DabasItemIndexEntry;
+import com.guidopierri.pantrybe.dtos.DabasItemSearchEntry;
+import com.guidopierri.pantrybe.dtos.DabasItemWatermark;
 import com.guidopierri.pantrybe.models.DabasItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DabasItemRepository extends JpaRepository<DabasItem, Long> {
+public interface DabasItemRepository extends JpaRepository<DabasItem, Long>, DabasItemBulkRepository {
     @Query("SELECT d FROM DabasItem d WHERE d.gtin = ?1")
     Optional<DabasItem> findDabasItemByGtin(String gtin);
 
+    List<DabasItem> findAllByGtinIn(Collection<String> gtins);
+
+    @Query("SELECT d.gtin FROM DabasItem d WHERE d.gtin IN ?1")
+    List<String> findExistingGtins(Collection<String> gtins);
+
+    @Query("SELECT new com.guidopierri.pantrybe.dtos.DabasItemWatermark(d.gtin, d.lastModified) FROM DabasItem d")
+    List<DabasItemWatermark> findAllWatermarks();
+
+    @Query("SELECT new com.guidopierri.pantrybe.dtos.DabasItemSearchEntry(d.id, d.name, d.brand) FROM DabasItem d")
+    List<DabasItemSearchEntry> findAllSearchEntries();
+
+    @Query("SELECT new com.guidopierri.pantrybe.dtos.DabasItemIndexEntry(d.id, d.name, d.brand, d.category, d.ingredients, d.allergens) FROM DabasItem d ORDER BY d.name, d.id")
+    List<DabasItemIndexEntry> findAllIndexEntries();
+
+    @Query("SELECT COUNT(t) FROM DabasItemTrigram t")
+    long countTrigrams();
+
+    @Query("SELECT COUNT(d) FROM DabasItem d WHERE d.searchText IS NULL")
+    long countWithoutSearchText();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DabasItem d WHERE d.gtin IN ?1")
+    int deleteAllByGtinIn(Collection<String> gtins);
 
 }
@@ -0,0 +1,16 @@
+package com.guidopierri.pantrybe.repositories;
+
+import com.guidopierri.pantrybe.models.ImportChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImportChunkRepository extends JpaRepository<ImportChunk, Long> {
+    List<ImportChunk> findAllByRunIdOrderByChunkIndex(long runId);
+
+    Optional<ImportChunk> findByRunIdAndChunkIndex(long runId, long chunkIndex);
+
+}
@@ -0,0 +1,19 @@
+package com.guidopierri.pantrybe.repositories;
+
+import com.guidopierri.pantrybe.models.ImportFailure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface ImportFailureRepository extends JpaRepository<ImportFailure, Long> {
+    List<ImportFailure> findAllByRunIdOrderByPosition(long runId);
+
+    long countByRunId(long runId);
+
+    @Transactional
+    void deleteAllByRunIdAndPositionGreaterThanEqual(long runId, long position);
+
+}
@@ -0,0 +1,15 @@
+package com.guidopierri.pantrybe.repositories;
+
+import com.guidopierri.pantrybe.models.ImportRun;
+import com.guidopierri.pantrybe.models.ImportRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface ImportRunRepository extends JpaRepository<ImportRun, Long> {
+    Optional<ImportRun> findFirstByStatusInOrderByIdDesc(Collection<ImportRunStatus> statuses);
+
+}
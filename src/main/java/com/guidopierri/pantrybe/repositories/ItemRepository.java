@@ -1,8 +1,10 @@
 package com.guidopierri.pantrybe.repositories;
 
+import com.guidopierri.pantrybe.dtos.ItemNameCount;
 import com.guidopierri.pantrybe.models.Item;
 import org.slf4j.Logger;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,4 +20,7 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     @Transactional
     void deleteByPantryId(Long pantryId);
 
+    @Query("SELECT new com.guidopierri.pantrybe.dtos.ItemNameCount(i.name, COUNT(i)) FROM Item i WHERE i.name IS NOT NULL GROUP BY i.name")
+    List<ItemNameCount> countByName();
+
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.guidopierri.pantrybe.services;
+
+/**
+ * Published after the stored DABAS articles have changed, e.g. by an import or the seeding of the database.
+ *
+ * @param source What changed the articles.
+ */
+public record DabasCatalogChangedEvent(String source) {
+}
@@ -0,0 +1,242 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.exceptions.DabasException;
+import com.guidopierri.pantrybe.services.client.AdaptiveRateLimiter;
+import com.guidopierri.pantrybe.services.client.DabasCallType;
+import com.guidopierri.pantrybe.services.client.DabasClientProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Client used for every call to the DABAS API, by both the import and the search.
+ * <p>
+ * It owns a single HttpClient, so connections are kept alive and reused between requests instead of
+ * paying for a new connection and TLS handshake on every article lookup. HTTP/2 is negotiated where the
+ * server supports it, responses are requested gzip compressed, and the client runs on a dedicated executor.
+ * <p>
+ * Every call type has its own {@link AdaptiveRateLimiter} and retry policy, configured by the
+ * {@link DabasClientProperties}. Calls that time out or are answered with 429 or a 5xx status lower the
+ * permitted rate and are retried after a jittered exponential backoff, honouring a Retry-After header.
+ * Successful calls ramp the permitted rate back up.
+ * <p>
+ * The following metrics are published:
+ * <ul>
+ *     <li>{@code dabas.client.requests}: time until the response headers arrive, tagged by call type, status and HTTP version.</li>
+ *     <li>{@code dabas.client.requests.in.flight}: the number of requests waiting for a response.</li>
+ *     <li>{@code dabas.client.errors}: requests that failed without a response, tagged by call type and exception.</li>
+ *     <li>{@code dabas.client.retries}: retried requests, tagged by call type and reason.</li>
+ *     <li>{@code dabas.client.rate}: the currently permitted calls per second, tagged by call type.</li>
+ *     <li>{@code dabas.http.*}: the executor of the client.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class DabasClient {
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final Duration requestTimeout;
+    private final MeterRegistry meterRegistry;
+    private final DabasClientProperties properties;
+    private final Map<DabasCallType, AdaptiveRateLimiter> rateLimiters = new EnumMap<>(DabasCallType.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public DabasClient(MeterRegistry meterRegistry,
+                       DabasClientProperties properties,
+                       @Value("${dabas.client.threads:8}") int threads,
+                       @Value("${dabas.client.connect-timeout:5s}") Duration connectTimeout,
+                       @Value("${dabas.client.request-timeout:30s}") Duration requestTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.requestTimeout = requestTimeout;
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry,
+                Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("dabas-http-")), "dabas.http");
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        meterRegistry.gauge("dabas.client.requests.in.flight", inFlight);
+        for (DabasCallType callType : DabasCallType.values()) {
+            AdaptiveRateLimiter rateLimiter = properties.policy(callType).newRateLimiter();
+            rateLimiters.put(callType, rateLimiter);
+            Gauge.builder("dabas.client.rate", rateLimiter, AdaptiveRateLimiter::getRate)
+                    .tag("call", callType.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Sends a GET request to the specified URL and returns the response body as a String.
+     *
+     * @param url      The URL to send the request to.
+     * @param callType The kind of call, which selects the rate limiter and retry policy.
+     * @return An Optional containing the response body if the request was successful, or an empty Optional if the status code was 404.
+     * @throws IOException          If an I/O error occurs when sending or receiving, including a timeout, on the last attempt.
+     * @throws InterruptedException If the operation is interrupted.
+     * @throws DabasException       If DABAS responds with an error status on the last attempt.
+     */
+    public Optional<String> get(String url, DabasCallType callType) throws IOException, InterruptedException {
+        Optional<InputStream> body = getStream(url, callType);
+        if (body.isEmpty()) {
+            return Optional.empty();
+        }
+        try (InputStream inputStream = body.get()) {
+            return Optional.of(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Sends a GET request to the specified URL and returns the response body as a stream.
+     * The body is not buffered, so large responses can be parsed while they are being received.
+     *
+     * @param url      The URL to send the request to.
+     * @param callType The kind of call, which selects the rate limiter and retry policy.
+     * @return An Optional containing the decompressed response body, which the caller must close,
+     * or an empty Optional if the status code was 404.
+     * @throws IOException          If an I/O error occurs when sending or receiving, including a timeout, on the last attempt.
+     * @throws InterruptedException If the operation is interrupted.
+     * @throws DabasException       If DABAS responds with an error status on the last attempt.
+     */
+    public Optional<InputStream> getStream(String url, DabasCallType callType) throws IOException, InterruptedException {
+        DabasClientProperties.CallPolicy policy = properties.policy(callType);
+        AdaptiveRateLimiter rateLimiter = rateLimiters.get(callType);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .timeout(policy.getRequestTimeout() != null ? policy.getRequestTimeout() : requestTimeout)
+                .GET()
+                .build();
+
+        for (int attempt = 1; ; attempt++) {
+            rateLimiter.acquire();
+            HttpResponse<InputStream> response;
+            try {
+                response = send(request, callType);
+            } catch (HttpTimeoutException e) {
+                rateLimiter.onThrottle();
+                if (attempt >= policy.getMaxAttempts()) {
+                    throw e;
+                }
+                backoff(callType, policy, attempt, "timeout", Optional.empty());
+                continue;
+            } catch (IOException e) {
+                if (attempt >= policy.getMaxAttempts()) {
+                    throw e;
+                }
+                backoff(callType, policy, attempt, "io", Optional.empty());
+                continue;
+            }
+
+            int status = response.statusCode();
+            if (status == 429 || status >= 500) {
+                response.body().close();
+                rateLimiter.onThrottle();
+                if (attempt >= policy.getMaxAttempts()) {
+                    throw new DabasException("DABAS responded with status " + status + " to " + callType + " call after " + attempt + " attempts");
+                }
+                backoff(callType, policy, attempt, String.valueOf(status), retryAfter(response));
+                continue;
+            }
+            rateLimiter.onSuccess();
+            if (status == 404) {
+                log.error("404 Error: Resource not found for {} call", callType);
+                response.body().close();
+                return Optional.empty();
+            }
+            if (status >= 400) {
+                response.body().close();
+                throw new DabasException("DABAS responded with status " + status + " to " + callType + " call");
+            }
+            return Optional.of(decode(response));
+        }
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest request, DabasCallType callType) throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        HttpResponse<InputStream> response;
+        inFlight.incrementAndGet();
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            meterRegistry.counter("dabas.client.errors", "call", callType.name(), "exception", e.getClass().getSimpleName()).increment();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        long duration = System.nanoTime() - startTime;
+        Timer.builder("dabas.client.requests")
+                .tag("call", callType.name())
+                .tag("status", String.valueOf(response.statusCode()))
+                .tag("version", response.version().name())
+                .register(meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        log.debug("HTTP request took {} milliseconds", TimeUnit.NANOSECONDS.toMillis(duration));
+        return response;
+    }
+
+    /**
+     * Sleeps before the next attempt. The backoff is drawn uniformly between zero and an exponentially
+     * growing bound, so concurrent callers that were throttled together do not retry together.
+     * A Retry-After delay requested by the server is waited for at least, up to the maximum backoff.
+     */
+    private void backoff(DabasCallType callType, DabasClientProperties.CallPolicy policy, int attempt,
+                         String reason, Optional<Duration> retryAfter) throws InterruptedException {
+        long maxMillis = policy.getMaxBackoff().toMillis();
+        long boundMillis = Math.min(maxMillis, policy.getInitialBackoff().toMillis() << Math.min(attempt - 1, 20));
+        long delayMillis = ThreadLocalRandom.current().nextLong(boundMillis + 1);
+        if (retryAfter.isPresent()) {
+            delayMillis = Math.min(maxMillis, Math.max(delayMillis, retryAfter.get().toMillis()));
+        }
+        meterRegistry.counter("dabas.client.retries", "call", callType.name(), "reason", reason).increment();
+        log.warn("Retrying {} call after {} ({} ms, attempt {} of {})", callType, reason, delayMillis, attempt + 1, policy.getMaxAttempts());
+        Thread.sleep(delayMillis);
+    }
+
+    private static Optional<Duration> retryAfter(HttpResponse<?> response) {
+        try {
+            return response.headers().firstValue("Retry-After").map(value -> Duration.ofSeconds(Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            // an HTTP date, fall back to the backoff policy
+            return Optional.empty();
+        }
+    }
+
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzip ? new GZIPInputStream(response.body()) : response.body();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
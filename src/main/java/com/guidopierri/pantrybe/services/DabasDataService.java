@@ -2,42 +2,68 @@ package com.guidopierri.pantrybe.services;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.guidopierri.pantrybe.config.EntityMapper;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemCursorPage;
 import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemSearchPage;
 import com.guidopierri.pantrybe.exceptions.DabasException;
+import com.guidopierri.pantrybe.exceptions.DataValidationException;
 import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.SearchCountMode;
 import com.guidopierri.pantrybe.models.SearchParams;
 import com.guidopierri.pantrybe.models.dabas.search.Search;
 import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.services.client.DabasArticleReader;
+import com.guidopierri.pantrybe.services.client.DabasCallType;
+import com.guidopierri.pantrybe.services.search.DabasItemIndex;
 import com.guidopierri.pantrybe.services.search.DabasItemSearchSpecification;
+import com.guidopierri.pantrybe.services.search.SearchCountEstimator;
+import com.guidopierri.pantrybe.services.search.SearchCursor;
+import com.guidopierri.pantrybe.services.search.SearchResultCache;
+import com.guidopierri.pantrybe.services.search.SearchText;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -48,9 +74,9 @@ import java.util.stream.Collectors;
  * The class implements the DataProvider interface, which defines methods for fetching
  * and searching for articles in the DABAS API.
  * <p>
- * It uses the DabasItemRepository for database operations, the EntityMapper for converting
- * between DabasItem and DabasItemResponse objects, and the EntityManager for executing
- * custom database queries.
+ * It uses the DabasClient for calls to the DABAS API, the DabasItemRepository for database operations,
+ * the EntityMapper for converting between DabasItem and DabasItemResponse objects, and the EntityManager
+ * for executing custom database queries.
  * <p>
  * The class is annotated with @Service, indicating that it is a Spring service component.
  * It is also annotated with @Slf4j, which provides a logger for logging messages.
@@ -58,29 +84,72 @@ import java.util.stream.Collectors;
 @Service
 @Slf4j
 public class DabasDataService implements DataProvider {
+    public static final int MAX_PAGE_SIZE = 100;
+    /**
+     * The attributes of a DabasItem selected by the projection queries, in the order of the components of a
+     * DabasItemResponse.
+     */
+    private static final String[] RESPONSE_ATTRIBUTES = {"gtin", "name", "brand", "image", "category", "size",
+            "ingredients", "productClassifications", "bruteWeight", "drainedWeight", "allergens"};
+    private static final ObjectReader SEARCH_READER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .readerFor(Search[].class);
 
     private final ItemService itemService;
     private final DabasItemRepository dabasItemRepository;
     private final EntityMapper entityMapper;
     private final EntityManager entityManager;
+    private final DabasClient dabasClient;
+    private final DabasItemIndex dabasItemIndex;
+    private final SearchCountEstimator searchCountEstimator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService hydrationExecutor;
+    private final SearchResultCache searchResultCache;
     @Value("${api-key}")
     private String apiKey;
     @Value("${dabas-api-url}")
     private String dabasApiUrl;
+    @Value("${dabas.search.hydrate-chunk-size:1000}")
+    private int hydrateChunkSize;
+    @Value("${dabas.search.remote-fallback:false}")
+    private boolean remoteFallback;
+    @Value("${dabas.search.remote-fallback-limit:50}")
+    private int remoteFallbackLimit;
     @Autowired
     private Environment env;
+    /**
+     * This service through its proxy, so the calls of the service to its own cached methods use the cache.
+     */
+    @Autowired
+    @Lazy
+    private DabasDataService self;
 
-    public DabasDataService(ItemService itemService, DabasItemRepository dabasItemRepository, EntityMapper entityMapper, EntityManager entityManager) {
+    public DabasDataService(ItemService itemService, DabasItemRepository dabasItemRepository, EntityMapper entityMapper, EntityManager entityManager, DabasClient dabasClient, DabasItemIndex dabasItemIndex, SearchCountEstimator searchCountEstimator, ApplicationEventPublisher eventPublisher,
+                            SearchResultCache searchResultCache,
+                            @Value("${dabas.search.remote-fallback-parallelism:4}") int remoteFallbackParallelism) {
         this.itemService = itemService;
         this.dabasItemRepository = dabasItemRepository;
         this.entityMapper = entityMapper;
         this.entityManager = entityManager;
+        this.dabasClient = dabasClient;
+        this.dabasItemIndex = dabasItemIndex;
+        this.searchCountEstimator = searchCountEstimator;
+        this.eventPublisher = eventPublisher;
+        this.searchResultCache = searchResultCache;
+        this.hydrationExecutor = Executors.newFixedThreadPool(remoteFallbackParallelism, new CustomizableThreadFactory("dabas-hydrate-"));
     }
 
-    private static ObjectMapper getObjectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        return objectMapper;
+    /**
+     * Clears the cached articles whenever the stored catalog changes, e.g. after an import, whether it was started
+     * by a job, by the schedule or on startup. The listener is called through the proxy, so the eviction applies.
+     *
+     * @param event The change of the catalog.
+     * @CacheEvict(value = "articles", allEntries = true) Annotation indicating that the cache of the "articles" cache should be cleared.
+     */
+    @EventListener
+    @CacheEvict(value = "articles", allEntries = true)
+    public void onCatalogChanged(DabasCatalogChangedEvent event) {
+        log.debug("Evicting the cached DABAS articles after a change by {}", event.source());
     }
 
     /**
@@ -88,6 +157,9 @@ public class DabasDataService implements DataProvider {
      * The method is cacheable, meaning that Spring will cache the result of the method
      * and, for subsequent calls with the same GTIN number, it will return the cached result
      * instead of calling the method again.
+     * <p>
+     * The response body is parsed as a stream by the {@link DabasArticleReader}, which only reads the
+     * fields of the DabasItemResponse and skips the rest of the article.
      *
      * @param gtinNumber The GTIN number of the article to fetch.
      * @return An Optional containing a DabasItemResponse if the article is found, or an empty Optional if not.
@@ -99,78 +171,19 @@ public class DabasDataService implements DataProvider {
     @Override
     public Optional<DabasItemResponse> getArticle(String gtinNumber) throws Exception {
         String url = dabasApiUrl + "article/gtin/" + gtinNumber + "/JSON?apikey=" + apiKey;
-        Optional<String> response = sendApiRequest(url);
-
+        Optional<InputStream> response = dabasClient.getStream(url, DabasCallType.ARTICLE);
 
         if (response.isEmpty()) {
             log.error("404 Error: Resource not found for search parameter: {}", gtinNumber);
-            // or handle it in another way based on your requirements
-        }
-        if (response.isEmpty()) {
             return Optional.empty();
         }
-        try {
-            JsonNode jsonNode = validateResponse(response.get());
-            String productName = jsonNode.path("Produktnamn").asText();
-            String gtin = jsonNode.path("GTIN").asText();
-            String brand = jsonNode.path("Varumarke").path("Varumarke").asText();
-            String mainGroup = jsonNode.path("Varugrupp").path("HuvudgruppBenamning").asText();
-            JsonNode bilder = jsonNode.path("Bilder");
-            String imageLink = (bilder.isArray() && !bilder.isEmpty()) ? bilder.path(0).path("Lank").asText() : null;
-            String size = jsonNode.path("Storlek").asText();
-            String ingredients = jsonNode.path("Ingrediensforteckning").asText();
-            ingredients = ingredients.replace("\r", "").replace("\n", "").replace("+", "").replace("*", "");
-            String productClassifications = jsonNode.path("Produktkod").asText();
-            String bruteWeight = jsonNode.path("Nettoinnehall").asText();
-            String drainedWeightUnit = jsonNode.path("MangdFardigVaraEnhetKod").asText();
-            String drainedWeight = jsonNode.path("MangdFardigVara_Formatted").asText() + " " + drainedWeightUnit;
-
-            log.info("productName: {}", productName);
-            log.info("gtin: {}", gtin);
-            log.info("brand: {}", brand);
-            log.info("imageLink: {}", imageLink);
-            log.info("mainGroup: {}", mainGroup);
-            log.info("size: {}", size);
-            log.info("ingredients: {}", ingredients);
-            log.info("productClassifications: {}", productClassifications);
-            log.info("bruteWeight: {}", bruteWeight);
-            log.info("drainedWeight: {}", drainedWeight);
-
-            return Optional.of(new DabasItemResponse(gtin,
-                    productName,
-                    brand,
-                    imageLink,
-                    mainGroup,
-                    size,
-                    ingredients,
-                    productClassifications,
-                    bruteWeight,
-                    drainedWeight));
-
+        try (InputStream body = response.get()) {
+            DabasItemResponse article = DabasArticleReader.read(body);
+            log.debug("article: {}", article);
+            return Optional.of(article);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
-
-    }
-
-    /**
-     * Validates the response from the DABAS API.
-     *
-     * @param response The response from the DABAS API as a String.
-     * @return A JsonNode object representing the JSON structure of the response.
-     * @throws JsonProcessingException If there is an error during the JSON processing.
-     *                                 <p>
-     *                                 This method checks if the response is null or empty, and if so, throws a DabasException.
-     *                                 If the response is valid, it converts the response into a JsonNode object using the Jackson library
-     *                                 and returns it.
-     */
-    private JsonNode validateResponse(String response) throws JsonProcessingException {
-        if (response == null || response.isEmpty()) {
-            throw new DabasException("Error validating DABAS data");
-        }
-        JsonNode jsonNode = getObjectMapper().readTree(response);
-        jsonNode.isEmpty();
-        return jsonNode;
     }
 
     /**
@@ -194,7 +207,7 @@ public class DabasDataService implements DataProvider {
         String jsonString;
 
         try {
-            jsonString = (sendApiRequest(url).get());
+            jsonString = sendApiRequest(url, DabasCallType.BASE_SEARCH).orElse("Not Found");
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -205,7 +218,7 @@ public class DabasDataService implements DataProvider {
         }
         log.info("jsonString: {}", jsonString);
         try {
-            return Arrays.stream(getObjectMapper().readValue(jsonString, Search[].class)).toList();
+            return Arrays.stream(SEARCH_READER.<Search[]>readValue(jsonString)).toList();
 
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
@@ -215,37 +228,17 @@ public class DabasDataService implements DataProvider {
     /**
      * Sends an HTTP request to the specified URL and returns the response body as a String.
      *
-     * @param url The URL to send the request to.
+     * @param url      The URL to send the request to.
+     * @param callType The kind of call, which selects the rate limiter and retry policy of the client.
      * @return An Optional containing the response body as a String if the request was successful, or an empty Optional if the status code was 404.
      * @throws IOException          If an I/O error occurs when sending or receiving.
      * @throws InterruptedException If the operation is interrupted.
      *                              <p>
-     *                              This method creates a new HttpClient and HttpRequest, sends the request, and records the time taken.
-     *                              If the status code of the response is 404, it logs an error and returns an empty Optional.
-     *                              Otherwise, it returns an Optional containing the response body as a String.
+     *                              The request is sent through the shared DabasClient, which reuses connections between requests
+     *                              and retries throttled requests.
      */
-    Optional<String> sendApiRequest(String url) throws IOException, InterruptedException {
-        long startTime = System.currentTimeMillis();
-
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .header("Content-Type", "application/json")
-                .uri(URI.create(url))
-                .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        long endTime = System.currentTimeMillis();
-        long duration = endTime - startTime;
-        log.info("HTTP request took {} milliseconds", duration);
-
-        int statusCode = response.statusCode();
-        if (statusCode == 404) {
-            log.error("404 Error: Resource not found: {}", url);
-            return Optional.empty();
-            // Handle it as needed
-
-        }
-        return response.body().describeConstable();
+    Optional<String> sendApiRequest(String url, DabasCallType callType) throws IOException, InterruptedException {
+        return dabasClient.get(url, callType);
     }
 
     /**
@@ -254,28 +247,185 @@ public class DabasDataService implements DataProvider {
      * @param searchParameter The search parameter to use in the DABAS API request.
      * @return A List of DabasItemResponse objects representing the search results from the DABAS API.
      * <p>
-     * This method first calls the fetchUpaginatedSearch method to get a list of Search objects from the DABAS API.
-     * It then converts this list into a Set of DabasItemResponse objects by calling the dtoSet method.
-     * Finally, it converts the Set back into a List and returns it.
+     * This method gets the GTINs of the search results from the cached hit list of the search, see searchHits,
+     * and hydrates them from the local database in the order of the DABAS search.
      */
     public List<DabasItemResponse> search(String searchParameter) {
-        List<Search> searchList = getAllBaseArticleSearchResults(searchParameter);
-        log.info("searchList: {}", searchList);
+        return hydrate(searchHits(SearchText.query(searchParameter)));
+    }
 
-        Set<DabasItemResponse> dtos = dtoSet(searchList);
-        return dtos.stream().toList();
+    /**
+     * Returns the GTINs of the results of a DABAS search, in the order of the DABAS search and without duplicates.
+     *
+     * @param query The search parameter to use in the DABAS API request, normalized with {@link SearchText#query}.
+     * @return The GTINs of the search results.
+     * <p>
+     * The hit list is cached in the {@link SearchResultCache}, so paging through the results of a search calls the
+     * DABAS API once. Unless {@code dabas.search.remote-fallback} is enabled, only the GTINs stored locally are kept,
+     * which makes the number of hits the exact total of a paginated search.
+     */
+    private List<String> searchHits(String query) {
+        return searchResultCache.hits(query, () -> loadSearchHits(query));
     }
 
-    private Set<DabasItemResponse> dtoSet(List<Search> searchList) {
-        return searchList.stream()
-                .map(search -> getArticleByGtin(search.getGtin()).orElse(null))
+    /**
+     * Searches for articles in the DABAS API, including the ones that are not stored locally.
+     *
+     * @param searchParameter The search parameter to use in the DABAS API request.
+     * @param limit           The maximum number of results.
+     * @return The first results of the DABAS search, in its order and without duplicates.
+     * <p>
+     * Unlike searchHits, the hits are kept whatever {@code dabas.search.remote-fallback} says. The articles that are
+     * stored locally are hydrated from the database, and the others are summarized from their search hit, with their
+     * name, brand and package size, instead of fetching every article from the DABAS API. The summaries of a search
+     * are cached in the {@link SearchResultCache}.
+     */
+    public List<DabasItemResponse> searchRemote(String searchParameter, int limit) {
+        String query = SearchText.query(searchParameter);
+        List<DabasItemResponse> summaries = searchResultCache.summaries(query, () -> loadSearchSummaries(query));
+        List<DabasItemResponse> hits = summaries.subList(0, Math.min(limit, summaries.size()));
+        Map<String, DabasItemResponse> stored = new HashMap<>();
+        for (DabasItem item : dabasItemRepository.findAllByGtinIn(hits.stream().map(DabasItemResponse::gtin).toList())) {
+            stored.putIfAbsent(item.getGtin(), entityMapper.dabasItemToDabasItemResponse(item));
+        }
+        return hits.stream().map(hit -> stored.getOrDefault(hit.gtin(), hit)).toList();
+    }
+
+    private List<DabasItemResponse> loadSearchSummaries(String searchParameter) {
+        Set<String> seen = new HashSet<>();
+        return getAllBaseArticleSearchResults(searchParameter).stream()
+                .filter(hit -> hit.getGtin() != null && seen.add(hit.getGtin()))
+                .map(hit -> new DabasItemResponse(hit.getGtin(), hit.getArtikelbenamning(), hit.getVarumarke(), null,
+                        null, hit.getForpackningsstorlek(), null, null, null, null, null))
+                .toList();
+    }
+
+    private List<String> loadSearchHits(String searchParameter) {
+        List<String> gtins = getAllBaseArticleSearchResults(searchParameter).stream()
+                .map(Search::getGtin)
                 .filter(Objects::nonNull)
-                .map(item -> {
-                    log.info("item: {}", item);
-                    return new DabasItemResponse(item.gtin(), item.name(), item.brand(), item.image(), item.category(), item.size(), item.ingredients(), item.productClassifications(), item.bruteWeight(), item.drainedWeight());
+                .distinct()
+                .toList();
+        if (remoteFallback) {
+            return gtins;
+        }
+        Set<String> stored = new HashSet<>();
+        for (int i = 0; i < gtins.size(); i += hydrateChunkSize) {
+            stored.addAll(dabasItemRepository.findExistingGtins(gtins.subList(i, Math.min(i + hydrateChunkSize, gtins.size()))));
+        }
+        return gtins.stream().filter(stored::contains).toList();
+    }
 
-                })
-                .collect(Collectors.toSet());
+    /**
+     * Hydrates search results from the local database, in the order of the GTINs.
+     *
+     * @param gtins The distinct GTINs of the search results.
+     * @return The stored articles of the search results.
+     * <p>
+     * The articles are fetched with one query per {@code dabas.search.hydrate-chunk-size} GTINs, which stays below
+     * the parameter limit of the driver, instead of one query per result. If {@code dabas.search.remote-fallback}
+     * is enabled, results that are not stored locally are fetched from the DABAS API instead, at most
+     * {@code dabas.search.remote-fallback-limit} of them, with {@code dabas.search.remote-fallback-parallelism}
+     * concurrent requests.
+     */
+    private List<DabasItemResponse> hydrate(List<String> gtins) {
+        Map<String, DabasItemResponse> found = new HashMap<>();
+        for (int i = 0; i < gtins.size(); i += hydrateChunkSize) {
+            for (DabasItem item : dabasItemRepository.findAllByGtinIn(gtins.subList(i, Math.min(i + hydrateChunkSize, gtins.size())))) {
+                found.putIfAbsent(item.getGtin(), entityMapper.dabasItemToDabasItemResponse(item));
+            }
+        }
+        if (remoteFallback) {
+            fetchMissing(gtins, found);
+        }
+        return gtins.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Searches for articles in the DABAS API and passes each result to the consumer as soon as it is hydrated.
+     * <p>
+     * Unlike search, the results are not collected: the hits are hydrated one chunk of
+     * {@code dabas.search.hydrate-chunk-size} GTINs at a time, and only the articles of the current chunk are held in
+     * memory. The results that are stored locally are passed on as soon as their chunk has been fetched. If
+     * {@code dabas.search.remote-fallback} is enabled, the missing results of a chunk are fetched from the DABAS API
+     * concurrently, and each is passed on when it arrives. When the consumer fails, the lookups still in progress are
+     * cancelled. The thread is checked for an interruption before every chunk, which is how Spring MVC cancels a
+     * streamed response that timed out or whose client disconnected, so no chunk is hydrated for a gone client.
+     *
+     * @param searchParameter The search parameter to use in the DABAS API request.
+     * @param consumer        Receives the results, in the order of the DABAS search.
+     * @throws IOException If the consumer fails, e.g. because the client disconnected. The search stops there.
+     */
+    public void streamSearch(String searchParameter, SearchResultConsumer consumer) throws IOException {
+        List<String> hits = searchHits(SearchText.query(searchParameter));
+        int remoteBudget = remoteFallback ? remoteFallbackLimit : 0;
+        Map<String, Future<Optional<DabasItemResponse>>> lookups = new HashMap<>();
+        try {
+            for (int i = 0; i < hits.size(); i += hydrateChunkSize) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("The search stream was cancelled");
+                }
+                List<String> chunk = hits.subList(i, Math.min(i + hydrateChunkSize, hits.size()));
+                Map<String, DabasItemResponse> found = new HashMap<>();
+                for (DabasItem item : dabasItemRepository.findAllByGtinIn(chunk)) {
+                    found.putIfAbsent(item.getGtin(), entityMapper.dabasItemToDabasItemResponse(item));
+                }
+                lookups.clear();
+                for (String gtin : chunk) {
+                    if (remoteBudget > 0 && !found.containsKey(gtin)) {
+                        lookups.put(gtin, hydrationExecutor.submit(() -> fetchRemote(gtin)));
+                        remoteBudget--;
+                    }
+                }
+                for (String gtin : chunk) {
+                    DabasItemResponse item = found.containsKey(gtin) ? found.get(gtin) : awaitLookup(lookups.get(gtin));
+                    if (item != null) {
+                        consumer.accept(item);
+                    }
+                }
+            }
+        } finally {
+            lookups.values().forEach(lookup -> lookup.cancel(true));
+        }
+    }
+
+    private DabasItemResponse awaitLookup(Future<Optional<DabasItemResponse>> lookup) throws IOException {
+        if (lookup == null) {
+            return null;
+        }
+        try {
+            return lookup.get().orElse(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching a search result from DABAS");
+        } catch (ExecutionException e) {
+            log.warn("Unable to fetch search result from DABAS: {}", e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    private void fetchMissing(List<String> gtins, Map<String, DabasItemResponse> found) {
+        List<String> missing = gtins.stream().filter(gtin -> !found.containsKey(gtin)).limit(remoteFallbackLimit).toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        log.info("Fetching {} search results missing locally from DABAS", missing.size());
+        List<CompletableFuture<Optional<DabasItemResponse>>> futures = missing.stream()
+                .map(gtin -> CompletableFuture.supplyAsync(() -> fetchRemote(gtin), hydrationExecutor))
+                .toList();
+        for (int i = 0; i < missing.size(); i++) {
+            String gtin = missing.get(i);
+            futures.get(i).join().ifPresent(item -> found.put(gtin, item));
+        }
+    }
+
+    private Optional<DabasItemResponse> fetchRemote(String gtin) {
+        try {
+            return self.getArticle(gtin);
+        } catch (Exception e) {
+            log.warn("Unable to fetch search result {} from DABAS: {}", gtin, e.getMessage());
+            return Optional.empty();
+        }
     }
 
     /**
@@ -288,41 +438,24 @@ public class DabasDataService implements DataProvider {
      * @param page            The page number to fetch.
      * @param size            The number of results per page.
      * @return A Page of DabasItemResponse objects representing the search results from the DABAS API.
-     * @Cacheable(value = "search", key = "{#searchParameter, #page}") Annotation indicating that the result of the method
-     * should be cached. The cache name is "search" and the key for storing the result in the cache is a combination of the search parameter and the page number.
+     * <p>
+     * The page is cached in the {@link SearchResultCache}, keyed by the search parameter normalized with
+     * {@link SearchText#query}, the page number and the page size.
+     * <p>
+     * Only the GTINs of the requested page are hydrated from the database. The total is the number of hits of the search
+     * and the order of the DABAS search is kept, so the pages of a search are consistent with each other.
      */
     @Override
-    @Cacheable(value = "search", key = "{#searchParameter, #page}")
     public Page<DabasItemResponse> searchToPageable(String searchParameter, int page, int size) {
         Pageable pageRequest = PageRequest.of(page, size);
-
-        List<Search> searchList = getAllBaseArticleSearchResults(searchParameter);
-        log.info("searchList: {}", searchList);
-        int pageSize = pageRequest.getPageSize();
-        int start = (int) pageRequest.getOffset();
-        int end = Math.min((start + pageSize), searchList.size());
-        var dtos = dtoSet(searchList);
-        List<DabasItemResponse> pageContent = dtos.stream().toList().subList(start, end);
-        return new PageImpl<>(pageContent, pageRequest, dtos.size());
-    }
-
-    /**
-     * Fetches an article from the local database using the provided GTIN number.
-     *
-     * @param gtin The GTIN number of the article to fetch.
-     * @return An Optional containing a DabasItemResponse if the article is found, or an empty Optional if not.
-     * <p>
-     * This method queries the local database for an article with the provided GTIN number.
-     * If the article is found, it is converted to a DabasItemResponse and returned.
-     * If the article is not found, an empty Optional is returned.
-     */
-    private Optional<DabasItemResponse> getArticleByGtin(String gtin) {
-        log.info("gtin: {}", gtin);
-        DabasItem dabasItem = dabasItemRepository.findDabasItemByGtin(gtin).orElse(null);
-        if (dabasItem == null) {
-            return Optional.empty();
-        }
-        return Optional.of(entityMapper.dabasItemToDabasItemResponse(dabasItem));
+        String query = SearchText.query(searchParameter);
+        return searchResultCache.page(query, page, size, () -> {
+            List<String> hits = searchHits(query);
+            int start = (int) Math.min(pageRequest.getOffset(), hits.size());
+            int end = Math.min(start + pageRequest.getPageSize(), hits.size());
+            List<DabasItemResponse> pageContent = hydrate(hits.subList(start, end));
+            return new PageImpl<>(pageContent, pageRequest, hits.size());
+        });
     }
 
     /**
@@ -356,6 +489,7 @@ public class DabasDataService implements DataProvider {
 
         allItems = dabasItemRepository.findAll();
         log.info("All items: {}", allItems.size());
+        eventPublisher.publishEvent(new DabasCatalogChangedEvent("sanitize"));
         return allItems;
     }
 
@@ -364,11 +498,11 @@ public class DabasDataService implements DataProvider {
      *
      * @param items The list of DabasItem objects to save.
      *              <p>
-     *              This method uses the DabasItemRepository to save the provided list of DabasItem objects to the database.
-     *              It then flushes the persistence context, ensuring that any pending changes are actually written to the database.
+     *              This method uses the bulk upsert of the DabasItemRepository to write the provided list of DabasItem objects
+     *              to the database in batches, updating the existing rows with the same GTIN instead of inserting duplicates.
      */
     public void saveAll(List<DabasItem> items) {
-        dabasItemRepository.saveAllAndFlush(items);
+        dabasItemRepository.upsertAll(items);
     }
 
     /**
@@ -387,6 +521,7 @@ public class DabasDataService implements DataProvider {
             List<DabasItem> items = mapper.readValue(inputStream, typeReference);
             saveAll(items);
             log.info("{} Items seeded!", items.size());
+            eventPublisher.publishEvent(new DabasCatalogChangedEvent("seed"));
         } catch (IOException e) {
             log.info("Unable to seed articles: {}", e.getMessage());
         }
@@ -398,11 +533,30 @@ public class DabasDataService implements DataProvider {
      * @param dabasItemsIds The list of IDs to fetch.
      * @return A list of DabasItemResponse objects.
      * <p>
-     * This method uses the DabasItemRepository to fetch a list of DabasItem objects from the database using the provided list of IDs.
-     * It then converts this list of DabasItem objects into a list of DabasItemResponse objects and returns it.
+     * This method selects the ID and the columns of the DabasItemResponse of the articles with the provided IDs in a
+     * single query, without loading managed DabasItem entities, and returns the responses in the order of the IDs.
      */
     private List<DabasItemResponse> getDabasItemsByIds(List<Long> dabasItemsIds) {
-        return entityMapper.convertListOfEmployeeToListOfEmployeeResponse(dabasItemRepository.findAllById(dabasItemsIds));
+        if (dabasItemsIds.isEmpty()) {
+            return List.of();
+        }
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<DabasItem> root = query.from(DabasItem.class);
+        List<Selection<?>> selections = new ArrayList<>(RESPONSE_ATTRIBUTES.length + 1);
+        selections.add(root.get("id"));
+        selections.addAll(Arrays.asList(responseSelections(root)));
+        query.multiselect(selections).where(root.get("id").in(dabasItemsIds));
+
+        Map<Long, DabasItemResponse> itemsById = new HashMap<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            itemsById.put(tuple.get(0, Long.class), new DabasItemResponse(tuple.get(1, String.class),
+                    tuple.get(2, String.class), tuple.get(3, String.class), tuple.get(4, String.class),
+                    tuple.get(5, String.class), tuple.get(6, String.class), tuple.get(7, String.class),
+                    tuple.get(8, String.class), tuple.get(9, String.class), tuple.get(10, String.class),
+                    tuple.get(11, String.class)));
+        }
+        return dabasItemsIds.stream().map(itemsById::get).filter(Objects::nonNull).toList();
     }
 
     /**
@@ -412,13 +566,140 @@ public class DabasDataService implements DataProvider {
      * @param pageable The pagination information to use.
      * @return A list of DabasItemResponse objects representing the search results.
      * <p>
-     * This method uses the DabasItemSearchSpecification to create a specification based on the provided search parameters.
-     * It then uses this specification to fetch a page of IDs from the database, converts this page of IDs into a list of IDs,
-     * and fetches a list of DabasItemResponse objects from the database using this list of IDs. It then returns this list of DabasItemResponse objects.
+     * This method finds the page of IDs in the in-memory DabasItemIndex, and only fetches the DabasItemResponse objects
+     * of that page from the database. Until the index has been built, it uses the DabasItemSearchSpecification to fetch
+     * the page of DabasItemResponse objects from the database in a single ordered projection query instead.
      */
     public List<DabasItemResponse> search(SearchParams search, Pageable pageable) {
-        Page<Long> page = findIdsBySpecification(new DabasItemSearchSpecification(search), pageable, DabasItem.class);
-        return getDabasItemsByIds(page.getContent());
+        if (dabasItemIndex.isReady()) {
+            return getDabasItemsByIds(dabasItemIndex.search(search, pageable).getContent());
+        }
+        return findResponseSliceBySpecification(new DabasItemSearchSpecification(search), pageable).getContent();
+    }
+
+    /**
+     * Searches for articles in the database, counting the total number of results as requested.
+     *
+     * @param search     The search parameters to use.
+     * @param pageable   The pagination information to use.
+     * @param countMode  How to compute the total number of results.
+     * @param facetLimit The maximum number of categories and of brands to count the results of, or 0 to count none.
+     * @return The page of articles, whether there is a next page, the total if it was requested, and the facets if
+     * they were requested.
+     * <p>
+     * When the in-memory DabasItemIndex is ready, it answers the search with an exact total at no extra cost, and
+     * applies the fuzzy matching and the relevance order of the search if they are requested. The results are
+     * counted per category and brand from its bitmaps. Only the articles of the requested page are fetched from
+     * the database.
+     * Otherwise the page of articles is fetched from the database in a single ordered projection query, with one row
+     * more than the page size to know whether there is a next page. With {@link SearchCountMode#EXACT} the results are also counted with a count query,
+     * with {@link SearchCountMode#APPROXIMATE} the last known total of the search is returned, or a lower bound
+     * while it is being counted in the background, and with {@link SearchCountMode#NONE} no total is returned.
+     * The results are then ordered by name, and no facets are counted.
+     */
+    public DabasItemSearchPage search(SearchParams search, Pageable pageable, SearchCountMode countMode, int facetLimit) {
+        if (dabasItemIndex.isReady()) {
+            DabasItemIndex.Result result = dabasItemIndex.search(search, pageable, facetLimit);
+            Page<Long> page = result.page();
+            return new DabasItemSearchPage(getDabasItemsByIds(page.getContent()), page.getNumber(), page.getSize(),
+                    page.hasNext(), page.getTotalElements(), true, result.facets());
+        }
+        DabasItemSearchSpecification specification = new DabasItemSearchSpecification(search);
+        Slice<DabasItemResponse> slice = findResponseSliceBySpecification(specification, pageable);
+        List<DabasItemResponse> content = slice.getContent();
+        long lowerBound = pageable.getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+
+        return switch (countMode) {
+            case EXACT -> new DabasItemSearchPage(content, slice.getNumber(), slice.getSize(), slice.hasNext(),
+                    slice.hasNext() || pageable.getOffset() > 0 ? countBySpecification(specification, DabasItem.class) : lowerBound, true, null);
+            case APPROXIMATE -> {
+                if (!slice.hasNext()) {
+                    yield new DabasItemSearchPage(content, slice.getNumber(), slice.getSize(), false, lowerBound, true, null);
+                }
+                OptionalLong estimate = searchCountEstimator.estimate(SearchCountEstimator.Key.of(search),
+                        () -> countBySpecification(specification, DabasItem.class));
+                yield new DabasItemSearchPage(content, slice.getNumber(), slice.getSize(), slice.hasNext(),
+                        Math.max(estimate.orElse(lowerBound), lowerBound), false, null);
+            }
+            case NONE -> new DabasItemSearchPage(content, slice.getNumber(), slice.getSize(), slice.hasNext(), null, false, null);
+        };
+    }
+
+    /**
+     * Validates the size of a page of a catalog search.
+     *
+     * @param size The requested number of articles per page.
+     * @return The size, capped at {@value #MAX_PAGE_SIZE}.
+     * @throws DataValidationException If the size is less than 1.
+     */
+    public static int pageSize(int size) {
+        if (size < 1) {
+            throw new DataValidationException("The page size must be at least 1, was " + size);
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Searches for articles in the database using keyset pagination.
+     *
+     * @param search The search parameters to use.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param size   The number of articles per page, at most {@value #MAX_PAGE_SIZE}.
+     * @return The page of articles and the cursor of the next page.
+     * @throws DataValidationException If the size is less than 1 or the cursor is not valid.
+     * <p>
+     * Unlike the offset pagination, the page is found by seeking past the last article of the previous page in the
+     * (name, id) index, so deep pages are as fast as the first one, and no count query is run. One article more
+     * than the page size is fetched to know whether there is a next page.
+     */
+    public DabasItemCursorPage search(SearchParams search, String cursor, int size) {
+        size = pageSize(size);
+        SearchCursor after = cursor == null || cursor.isEmpty() ? null : SearchCursor.decode(cursor);
+        List<SearchCursor> keys = findKeysAfter(new DabasItemSearchSpecification(search), after, size + 1);
+        boolean hasNext = keys.size() > size;
+        List<SearchCursor> page = hasNext ? keys.subList(0, size) : keys;
+        List<DabasItemResponse> content = getDabasItemsByIds(page.stream().map(SearchCursor::id).toList());
+        return new DabasItemCursorPage(content, hasNext ? page.get(page.size() - 1).encode() : null);
+    }
+
+    /**
+     * Fetches the keys of the articles following the provided cursor, ordered by name and id.
+     *
+     * @param specification The specification to use.
+     * @param after         The key to start after, or null to start from the beginning.
+     * @param limit         The maximum number of keys to fetch.
+     * @return The keys of the matching articles.
+     * <p>
+     * The row value comparison (name, id) > (?, ?) is not supported by SQL Server, so it is expanded to
+     * name > ? OR (name = ? AND id > ?), which is still served by a seek in the (name, id) index. Articles without
+     * a name sort first, so after one of them the seek is name IS NOT NULL OR (name IS NULL AND id > ?).
+     */
+    public List<SearchCursor> findKeysAfter(Specification<DabasItem> specification, SearchCursor after, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<DabasItem> root = query.from(DabasItem.class);
+        Path<String> name = root.get(DabasItemSearchSpecification.NAME);
+        Path<Long> id = root.get("id");
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (after != null && after.name() == null) {
+            predicate = builder.and(predicate, builder.or(
+                    builder.isNotNull(name),
+                    builder.and(builder.isNull(name), builder.greaterThan(id, after.id()))));
+        } else if (after != null) {
+            predicate = builder.and(predicate, builder.or(
+                    builder.greaterThan(name, after.name()),
+                    builder.and(builder.equal(name, after.name()), builder.greaterThan(id, after.id()))));
+        }
+        query.multiselect(name, id)
+                .where(predicate)
+                .orderBy(builder.asc(name), builder.asc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(tuple -> new SearchCursor(tuple.get(0, String.class), tuple.get(1, Long.class)))
+                .toList();
     }
 
     /**
@@ -434,26 +715,96 @@ public class DabasDataService implements DataProvider {
      */
     public <T> Page<Long> findIdsBySpecification(Specification<T> specification,
                                                  Pageable pageable, Class<T> clazz) {
+        var result = createIdQuery(specification, clazz)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize());
+
+        var totalElements = countBySpecification(specification, clazz);
+        return new PageImpl<>(result.getResultList(), pageable, totalElements);
+    }
+
+    /**
+     * Fetches a slice of IDs from the database using the provided specification and pagination information.
+     *
+     * @param specification The specification to use.
+     * @param pageable      The pagination information to use.
+     * @param clazz         The class of the objects to fetch.
+     * @return A slice of IDs.
+     * <p>
+     * Unlike findIdsBySpecification, no count query is run. One row more than the page size is fetched
+     * to know whether there is a next page.
+     */
+    public <T> Slice<Long> findIdSliceBySpecification(Specification<T> specification,
+                                                      Pageable pageable, Class<T> clazz) {
+        List<Long> ids = createIdQuery(specification, clazz)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = ids.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? ids.subList(0, pageable.getPageSize()) : ids, pageable, hasNext);
+    }
 
+    /**
+     * Fetches a slice of DabasItemResponse objects from the database using the provided specification and pagination
+     * information.
+     *
+     * @param specification The specification to use.
+     * @param pageable      The pagination information to use.
+     * @return A slice of DabasItemResponse objects, ordered by name and id.
+     * <p>
+     * Unlike fetching a slice of IDs with findIdSliceBySpecification and then the articles by their IDs, the columns
+     * of the DabasItemResponse are selected in the same ordered query and constructed directly from the rows, so
+     * there is a single round trip and no managed entity is loaded or dirty checked. One row more than the page
+     * size is fetched to know whether there is a next page.
+     */
+    public Slice<DabasItemResponse> findResponseSliceBySpecification(Specification<DabasItem> specification, Pageable pageable) {
         CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Long> query = builder.createQuery(Long.class);
-        Root<T> root = query.from(clazz);
-        query.select(root.get("id"))
+        CriteriaQuery<DabasItemResponse> query = builder.createQuery(DabasItemResponse.class);
+        Root<DabasItem> root = query.from(DabasItem.class);
+        query.select(builder.construct(DabasItemResponse.class, responseSelections(root)))
                 .where(specification.toPredicate(root, query, builder))
-                .orderBy(builder.asc(root.get(DabasItemSearchSpecification.NAME)));
-
-        var result = entityManager.createQuery(query)
+                .orderBy(builder.asc(root.get(DabasItemSearchSpecification.NAME)), builder.asc(root.get("id")));
+        List<DabasItemResponse> items = entityManager.createQuery(query)
                 .setFirstResult((int) pageable.getOffset())
-                .setMaxResults(pageable.getPageSize());
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = items.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? items.subList(0, pageable.getPageSize()) : items, pageable, hasNext);
+    }
 
+    private static Selection<?>[] responseSelections(Root<DabasItem> root) {
+        Selection<?>[] selections = new Selection<?>[RESPONSE_ATTRIBUTES.length];
+        for (int i = 0; i < RESPONSE_ATTRIBUTES.length; i++) {
+            selections[i] = root.get(RESPONSE_ATTRIBUTES[i]);
+        }
+        return selections;
+    }
+
+    /**
+     * Counts the objects matching the provided specification.
+     *
+     * @param specification The specification to use.
+     * @param clazz         The class of the objects to count.
+     * @return The number of matching objects.
+     */
+    public <T> long countBySpecification(Specification<T> specification, Class<T> clazz) {
         CriteriaBuilder countBuilder = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> countQuery = countBuilder.createQuery(Long.class);
         Root<T> countRoot = countQuery.from(clazz);
         countQuery.select(countBuilder.count(countRoot))
                 .where(specification.toPredicate(countRoot, countQuery, countBuilder));
 
-        var totalElements = entityManager.createQuery(countQuery).getSingleResult();
-        return new PageImpl<>(result.getResultList(), pageable, totalElements);
+        return entityManager.createQuery(countQuery).getSingleResult();
+    }
+
+    private <T> TypedQuery<Long> createIdQuery(Specification<T> specification, Class<T> clazz) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<T> root = query.from(clazz);
+        query.select(root.get("id"))
+                .where(specification.toPredicate(root, query, builder))
+                .orderBy(builder.asc(root.get(DabasItemSearchSpecification.NAME)), builder.asc(root.get("id")));
+        return entityManager.createQuery(query);
     }
 
     /**
@@ -461,11 +812,15 @@ public class DabasDataService implements DataProvider {
      * <p>
      * This method checks if the database is empty by counting the number of DabasItem objects in it.
      * If the count is zero, it calls the seedArticles method to seed the database with articles.
+     * Otherwise, if articles were stored before the search text or the trigram index existed, it builds the search
+     * text and the trigrams of every article.
      */
     @Profile("!test")
     public void checkAndSeedArticles() {
         if (dabasItemRepository.count() == 0) {
             seedArticles();
+        } else if (dabasItemRepository.countTrigrams() == 0 || dabasItemRepository.countWithoutSearchText() > 0) {
+            log.info("Indexed search terms of {} articles", dabasItemRepository.reindexAllSearchTerms());
         }
     }
 
@@ -485,4 +840,17 @@ public class DabasDataService implements DataProvider {
         }
 
     }
+
+    @PreDestroy
+    public void shutdown() {
+        hydrationExecutor.shutdownNow();
+    }
+
+    /**
+     * Receives the results of a streamed search.
+     */
+    @FunctionalInterface
+    public interface SearchResultConsumer {
+        void accept(DabasItemResponse item) throws IOException;
+    }
 }
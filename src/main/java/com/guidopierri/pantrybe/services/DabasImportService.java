@@ -1,27 +1,39 @@
 package com.guidopierri.pantrybe.services;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.guidopierri.pantrybe.config.EntityMapper;
-import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.dtos.DabasItemWatermark;
+import com.guidopierri.pantrybe.dtos.responses.ImportSummary;
 import com.guidopierri.pantrybe.exceptions.DabasException;
+import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.ImportFailure;
+import com.guidopierri.pantrybe.models.ImportMode;
+import com.guidopierri.pantrybe.models.ImportRun;
+import com.guidopierri.pantrybe.models.dabas.search.Search;
 import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.services.client.DabasCallType;
+import com.guidopierri.pantrybe.services.imports.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class for handling operations related to importing Dabas data.
  * This includes fetching data from the DABAS API, validating API responses,
  * caching results, and interacting with the local database.
  * <p>
- * The class uses the DabasDataService for fetching data from the DABAS API,
- * the DabasItemRepository for database operations, and the EntityMapper for converting
- * between DabasItem and DabasItemResponse objects.
+ * The class uses the DabasDataService and the DabasClient for fetching data from the DABAS API,
+ * the DabasItemRepository for database operations, the ImportRunService for checkpointing
+ * the progress of an import, and the EntityMapper for converting between DabasItem and
+ * DabasItemResponse objects.
  * <p>
  * The class is annotated with @Service, indicating that it is a Spring service component.
  * It is also annotated with @Slf4j, which provides a logger for logging messages.
@@ -29,84 +41,277 @@ import java.util.*;
 @Service
 @Slf4j
 public class DabasImportService {
+    private static final int DELETE_CHUNK_SIZE = 1000;
 
     private final DabasDataService dabasDataService;
+    private final DabasClient dabasClient;
     private final DabasItemRepository dabasItemRepository;
+    private final ImportRunService importRunService;
     private final EntityMapper entityMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicBoolean importRunning = new AtomicBoolean();
 
     @Value("${api-key}")
     private String apiKey;
     @Value("${dabas-api-url}")
     private String dabasApiUrl;
+    @Value("${dabas.import.fetch-workers:8}")
+    private int fetchWorkers;
+    @Value("${dabas.import.max-in-flight:16}")
+    private int maxInFlight;
+    @Value("${dabas.import.queue-capacity:1000}")
+    private int queueCapacity;
+    @Value("${dabas.import.batch-size:100}")
+    private int batchSize;
+    @Value("${dabas.import.checkpoint-size:500}")
+    private int checkpointSize;
 
-    public DabasImportService(DabasDataService dabasDataService, DabasItemRepository dabasItemRepository, EntityMapper entityMapper) {
+    public DabasImportService(DabasDataService dabasDataService, DabasClient dabasClient, DabasItemRepository dabasItemRepository, ImportRunService importRunService, EntityMapper entityMapper, ApplicationEventPublisher eventPublisher) {
         this.dabasDataService = dabasDataService;
+        this.dabasClient = dabasClient;
         this.dabasItemRepository = dabasItemRepository;
+        this.importRunService = importRunService;
         this.entityMapper = entityMapper;
+        this.eventPublisher = eventPublisher;
     }
 
-    private static ObjectMapper getObjectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        return objectMapper;
+    /**
+     * Imports every article from the DABAS API using their GTIN numbers.
+     *
+     * @return A summary of the import.
+     * @throws Exception If there is an error during the API request or the JSON processing.
+     * @see #importArticlesGtin(ImportMode, ImportJob)
+     */
+    public ImportSummary importArticlesGtin() throws Exception {
+        return importArticlesGtin(ImportMode.FULL);
+    }
+
+    /**
+     * Imports articles from the DABAS API without tracking the progress in a job.
+     *
+     * @param mode Whether to fetch every article or only the changed ones.
+     * @return A summary of the import.
+     * @throws Exception If there is an error during the API request or the JSON processing.
+     * @see #importArticlesGtin(ImportMode, ImportJob)
+     */
+    public ImportSummary importArticlesGtin(ImportMode mode) throws Exception {
+        return importArticlesGtin(mode, new ImportJob(mode));
     }
 
     /**
      * Imports articles from the DABAS API using their GTIN numbers.
      * The method is cache evicting, meaning that Spring will clear the cache of the "articles" cache.
+     * <p>
+     * The article listing is parsed as a stream by the {@link DabasListingReader}, and every listed GTIN is
+     * handed to a {@link DabasImportPipeline} as soon as it is read. The pipeline, which is sized by the
+     * {@code dabas.import.*} properties, fetches the articles concurrently and writes them to the database in batches.
+     * <p>
+     * Every imported article stores the SenastAndradDatum of the listing as its watermark. In
+     * {@link ImportMode#DELTA} mode only articles that are new or whose watermark has changed are fetched.
+     * In both modes, articles that are no longer part of the listing are deleted from the database.
+     * <p>
+     * The progress is checkpointed in chunks of {@code dabas.import.checkpoint-size} listing positions.
+     * If a previous run did not complete, it is resumed from its last committed chunk instead of starting over.
+     * The listing is fetched again when resuming, and DABAS may have reordered it or added articles since, so the
+     * positions before the cursor are not skipped blindly: their articles are re-checked against the stored
+     * watermarks, and the ones that are new or changed are imported as well.
+     * Articles that fail are put on a retry list, which is processed once the whole listing has been imported.
+     * <p>
+     * A {@link DabasCatalogChangedEvent} is published when the import ends, also if it fails part way, which
+     * evicts the cached articles however the import was started, e.g. by the schedule.
      *
-     * @return A List of DabasItemResponse objects representing the imported articles.
+     * @param mode Whether to fetch every article or only the changed ones. A resumed run keeps its original mode.
+     * @param job  Receives the progress of the import.
+     * @return A summary of the import. The imported articles themselves are not returned to keep the memory bounded.
      * @throws Exception If there is an error during the API request or the JSON processing.
-     * @CacheEvict(value = "articles", allEntries = true) Annotation indicating that the cache of the "articles" cache should be cleared.
      */
-    @CacheEvict(value = "articles", allEntries = true)
-    public List<DabasItemResponse> importArticlesGtin() throws Exception {
-        List<Map<String, String>> articlesMap = new ArrayList<>();
+    public ImportSummary importArticlesGtin(ImportMode mode, ImportJob job) throws Exception {
+        if (!importRunning.compareAndSet(false, true)) {
+            throw new DabasException("A DABAS import is already running");
+        }
+        long startTime = System.currentTimeMillis();
+        ImportRun run = null;
+        try {
+            run = importRunService.startOrResume(mode);
+            job.started(run.getId());
+            ListingResult result = importListing(run, job);
+            ImportStats retryStats = retryFailures(run, job);
+            run = importRunService.complete(run.getId(), retryStats);
+            log.info("Completed DABAS import run: {}", run);
+
+            long elapsedMillis = System.currentTimeMillis() - startTime;
+            long written = result.stats().getWritten() + (retryStats == null ? 0 : retryStats.getWritten());
+            ImportSummary summary = new ImportSummary(run.getId(), run.getMode(), result.listed(), run.getWritten(),
+                    run.getNotFound(), run.getFailed(), run.getSkipped(), result.deleted(), elapsedMillis,
+                    elapsedMillis == 0 ? 0 : written * 1000.0 / elapsedMillis);
+            job.completed(summary);
+            return summary;
+        } catch (Exception e) {
+            if (run != null) {
+                importRunService.fail(run.getId());
+            }
+            throw e;
+        } finally {
+            importRunning.set(false);
+            if (run != null) {
+                eventPublisher.publishEvent(new DabasCatalogChangedEvent("import run " + run.getId()));
+            }
+        }
+    }
+
+    private ListingResult importListing(ImportRun run, ImportJob job) throws Exception {
         String url = dabasApiUrl + "articles/JSON?apikey=" + apiKey;
-        String jsonString;
-
-        jsonString = (dabasDataService.sendApiRequest(url).orElseThrow(() ->
-                new DabasException("Error: No response from DABAS")));
-
-        log.info("jsonString: {}", jsonString);
-        int articlesCount = 0;
-        for (Map map : getObjectMapper().readValue(jsonString, Map[].class)) {
-            Map<String, String> article = new HashMap<>();
-            article.put("GTIN", map.get("GTIN").toString());
-            articlesMap.add(article);
-            articlesCount++;
+        ImportMode mode = run.getMode();
+        long cursorPosition = run.getCursorPosition();
+
+        Map<String, String> watermarks = new HashMap<>();
+        for (DabasItemWatermark watermark : dabasItemRepository.findAllWatermarks()) {
+            watermarks.put(watermark.gtin(), watermark.lastModified());
         }
-        log.info("Found {} Articles in DABAS ", articlesCount);
-
-        int batchSize = 100; // Define your batch size here
-        List<DabasItemResponse> articles = new ArrayList<>();
-        for (int i = 0; i < articlesMap.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, articlesMap.size());
-            List<Map<String, String>> batch = articlesMap.subList(i, end);
-
-            for (Map<String, String> article : batch) {
-                Optional<DabasItemResponse> response = dabasDataService.getArticle(article.get("GTIN"));
-                if (response.isPresent()) {
-                    dabasItemRepository.saveAndFlush(entityMapper.dabasItemResponseToDabasItem(response.get()));
-                    articles.add(response.get());
-                    log.info("Imported article: {}", response.get().name());
-                    log.info("article nr: {} from :{}", articles.size(), articlesCount);
+
+        Set<String> listedGtins = new HashSet<>();
+        ImportCheckpointTracker tracker = new ImportCheckpointTracker(checkpointSize, cursorPosition,
+                chunk -> commitChunk(run, chunk));
+        int listed;
+        ImportStats stats;
+        try (DabasImportPipeline<ImportTask, DabasItem> pipeline = newPipeline((task, outcome, error) -> {
+            if (outcome == ImportOutcome.FAILED) {
+                recordFailure(run, task, error);
+                job.recordError(task.gtin(), error);
+            }
+            if (task.position() >= cursorPosition) {
+                tracker.complete(task.position(), outcome);
+            }
+        });
+             InputStream listing = dabasClient.getStream(url, DabasCallType.LISTING).orElseThrow(() ->
+                     new DabasException("Error: No response from DABAS"))) {
+            job.tracking(pipeline.getStats());
+            AtomicLong nextPosition = new AtomicLong();
+            listed = DabasListingReader.read(listing, article -> {
+                long position = nextPosition.getAndIncrement();
+                listedGtins.add(article.getGtin());
+                job.listed();
+                if (position < cursorPosition) {
+                    if (!isUnchanged(article, watermarks)) {
+                        pipeline.submit(new ImportTask(position, article.getGtin(), article.getSenastAndradDatum()));
+                    }
+                    return;
+                }
+                tracker.register(position);
+                if (mode == ImportMode.DELTA && isUnchanged(article, watermarks)) {
+                    tracker.complete(position, ImportOutcome.SKIPPED);
+                    return;
                 }
+                pipeline.submit(new ImportTask(position, article.getGtin(), article.getSenastAndradDatum()));
+            });
+            tracker.finishListing();
+            log.info("Found {} Articles in DABAS for import run {}, starting at position {}", listed, run.getId(), cursorPosition);
+            stats = pipeline.awaitCompletion();
+            log.info("Imported {} of {} articles from DABAS ({} mode): {}", stats.getWritten(), listed, mode, stats);
+        }
+        int deleted = deleteUnlisted(watermarks.keySet(), listedGtins);
+        return new ListingResult(listed, deleted, stats);
+    }
+
+    /**
+     * Retries the articles on the retry list of the run, removing the ones that succeed.
+     *
+     * @param run The import run.
+     * @param job Receives the progress of the retry.
+     * @return The statistics of the retry, or null if there was nothing to retry.
+     * @throws InterruptedException If the thread is interrupted while waiting for the retry.
+     */
+    private ImportStats retryFailures(ImportRun run, ImportJob job) throws InterruptedException {
+        List<ImportFailure> failures = importRunService.getFailures(run.getId());
+        if (failures.isEmpty()) {
+            return null;
+        }
+        log.info("Retrying {} failed articles of import run {}", failures.size(), run.getId());
+        Map<Long, ImportFailure> failuresByPosition = failures.stream()
+                .collect(Collectors.toMap(ImportFailure::getPosition, Function.identity(), (first, second) -> first));
+        try (DabasImportPipeline<ImportTask, DabasItem> pipeline = newPipeline((task, outcome, error) -> {
+            ImportFailure failure = failuresByPosition.get(task.position());
+            if (outcome == ImportOutcome.FAILED) {
+                importRunService.recordFailedRetry(failure, error);
+                job.recordError(task.gtin(), error);
+            } else {
+                importRunService.resolveFailure(failure);
+            }
+        })) {
+            job.retrying(pipeline.getStats());
+            for (ImportFailure failure : failuresByPosition.values()) {
+                pipeline.submit(new ImportTask(failure.getPosition(), failure.getGtin(), failure.getLastModified()));
             }
+            ImportStats stats = pipeline.awaitCompletion();
+            log.info("Retried {} failed articles of import run {}: {}", failures.size(), run.getId(), stats);
+            return stats;
         }
-        return articles;
+    }
+
+    private DabasImportPipeline<ImportTask, DabasItem> newPipeline(DabasImportPipeline.Listener<ImportTask> listener) {
+        return new DabasImportPipeline<>(fetchWorkers, maxInFlight, queueCapacity, batchSize,
+                this::fetchArticle, dabasItemRepository::upsertAll, listener);
+    }
+
+    private void commitChunk(ImportRun run, ImportCheckpointTracker.Chunk chunk) {
+        try {
+            importRunService.commitChunk(run.getId(), chunk);
+        } catch (RuntimeException e) {
+            log.error("Unable to checkpoint chunk {} of import run {}: {}", chunk.getIndex(), run.getId(), e.getMessage());
+        }
+    }
+
+    private void recordFailure(ImportRun run, ImportTask task, Exception error) {
+        try {
+            importRunService.recordFailure(run.getId(), task, error);
+        } catch (RuntimeException e) {
+            log.error("Unable to record failed article {} of import run {}: {}", task.gtin(), run.getId(), e.getMessage());
+        }
+    }
+
+    private Optional<DabasItem> fetchArticle(ImportTask task) throws Exception {
+        return dabasDataService.getArticle(task.gtin()).map(response -> {
+            DabasItem item = entityMapper.dabasItemResponseToDabasItem(response);
+            item.setLastModified(task.lastModified());
+            return item;
+        });
+    }
+
+    private static boolean isUnchanged(Search article, Map<String, String> watermarks) {
+        String lastModified = watermarks.get(article.getGtin());
+        return lastModified != null && lastModified.equals(article.getSenastAndradDatum());
+    }
+
+    /**
+     * Deletes the stored articles that are no longer part of the DABAS listing.
+     *
+     * @param storedGtins The GTINs stored before the import.
+     * @param listedGtins The GTINs in the DABAS listing.
+     * @return The number of deleted articles.
+     */
+    private int deleteUnlisted(Set<String> storedGtins, Set<String> listedGtins) {
+        if (listedGtins.isEmpty()) {
+            log.warn("DABAS listing is empty, skipping deletion of unlisted articles");
+            return 0;
+        }
+        List<String> unlisted = storedGtins.stream().filter(gtin -> !listedGtins.contains(gtin)).toList();
+        for (int i = 0; i < unlisted.size(); i += DELETE_CHUNK_SIZE) {
+            dabasItemRepository.deleteAllByGtinIn(unlisted.subList(i, Math.min(i + DELETE_CHUNK_SIZE, unlisted.size())));
+        }
+        log.info("Deleted {} articles no longer listed in DABAS", unlisted.size());
+        return unlisted.size();
     }
 
     /**
      * Imports articles from the DABAS API on a schedule.
-     * The method is scheduled to run every week at 2:00 AM.
+     * The method is scheduled to run every week at 2:00 AM and only fetches articles changed since the last run.
      *
      * @throws Exception If there is an error during the API request or the JSON processing.
      * @Scheduled(cron = "0 2 * * 0") Annotation indicating that the method should be run on a schedule.
      */
     @Scheduled(cron = "0 2 * * 0") // run every week at 2:00 AM
     public void cronImportArticles() throws Exception {
-        importArticlesGtin();
+        importArticlesGtin(ImportMode.DELTA);
     }
 
     /**
@@ -119,4 +324,7 @@ public class DabasImportService {
             importArticlesGtin();
         }
     }
+
+    private record ListingResult(int listed, int deleted, ImportStats stats) {
+    }
 }
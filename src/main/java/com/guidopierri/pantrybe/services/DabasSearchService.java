@@ -1,18 +1,53 @@
 package com.guidopierri.pantrybe.services;
 
 import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.dtos.responses.FederatedSearchResponse;
+import com.guidopierri.pantrybe.dtos.responses.SuggestionResponse;
+import com.guidopierri.pantrybe.models.SearchOrder;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.services.search.SuggestionIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
+@Slf4j
 public class DabasSearchService {
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int MAX_FEDERATED_RESULTS = 100;
     private final DabasDataService dabasDataService;
+    private final SuggestionIndex suggestionIndex;
+    private final ThreadPoolExecutor federatedExecutor;
+    private final Duration federatedDeadline;
 
-    public DabasSearchService(DabasDataService dabasDataService) {
+    public DabasSearchService(DabasDataService dabasDataService, SuggestionIndex suggestionIndex,
+                              @Value("${dabas.search.federated.deadline:150ms}") Duration federatedDeadline,
+                              @Value("${dabas.search.federated.parallelism:4}") int federatedParallelism,
+                              @Value("${dabas.search.federated.queue-capacity:100}") int federatedQueueCapacity) {
         this.dabasDataService = dabasDataService;
+        this.suggestionIndex = suggestionIndex;
+        this.federatedDeadline = federatedDeadline;
+        this.federatedExecutor = new ThreadPoolExecutor(federatedParallelism, federatedParallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(federatedQueueCapacity), new CustomizableThreadFactory("dabas-federated-"));
     }
 
     public ResponseEntity<Optional<DabasItemResponse>> getProductByGtin(String gtin) throws Exception {
@@ -24,4 +59,80 @@ public class DabasSearchService {
 
         return new ResponseEntity<>(article, HttpStatus.OK);
     }
+
+    /**
+     * Suggests names and brands of the stored articles completing the text typed so far, from memory.
+     *
+     * @param q     The text typed so far.
+     * @param limit The maximum number of suggestions, at most 50.
+     * @return The suggestions, the most popular first.
+     */
+    public List<SuggestionResponse> suggest(String q, int limit) {
+        return suggestionIndex.suggest(q, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    /**
+     * Searches the local catalog and the DABAS API in parallel, and merges whatever has arrived by the deadline.
+     * <p>
+     * The DABAS search is submitted first, then the local catalog is searched on the calling thread, by relevance
+     * once the in-memory index is ready. The DABAS results are awaited for the rest of the deadline, and added
+     * after the local ones unless an article with the same GTIN was already found. The DABAS results include the
+     * articles that are not stored locally, summarized from their search hit, see {@link DabasDataService#searchRemote}.
+     * If the DABAS API is too slow or fails, or too many DABAS searches are already pending, the local results are
+     * returned alone and marked as partial. A DABAS search that misses the deadline is not cancelled: it completes in the background and its
+     * results are cached, so the next search for the same text is served in time.
+     *
+     * @param q        The text of the search.
+     * @param limit    The maximum number of results, at most 100.
+     * @param deadline How long to wait for the DABAS API, or null for {@code dabas.search.federated.deadline}.
+     * @return The merged results, and whether the DABAS results are missing.
+     */
+    public FederatedSearchResponse federatedSearch(String q, int limit, Duration deadline) {
+        long deadlineNanos = System.nanoTime() + (deadline == null ? federatedDeadline : deadline).toNanos();
+        int size = Math.max(1, Math.min(limit, MAX_FEDERATED_RESULTS));
+        CompletableFuture<List<DabasItemResponse>> remote;
+        try {
+            remote = CompletableFuture.supplyAsync(() -> dabasDataService.searchRemote(q, size), federatedExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Too many pending DABAS searches, searching {} locally only", q);
+            remote = null;
+        }
+
+        SearchParams searchParams = new SearchParams();
+        searchParams.setFreeTextSearch(q);
+        searchParams.setOrder(SearchOrder.RELEVANCE);
+        Map<String, DabasItemResponse> merged = new LinkedHashMap<>();
+        for (DabasItemResponse item : dabasDataService.search(searchParams, PageRequest.of(0, size))) {
+            merged.putIfAbsent(item.gtin(), item);
+        }
+
+        List<DabasItemResponse> remoteItems = remote == null ? null : awaitRemote(remote, q, deadlineNanos);
+        if (remoteItems != null) {
+            for (DabasItemResponse item : remoteItems) {
+                if (merged.size() >= size) {
+                    break;
+                }
+                merged.putIfAbsent(item.gtin(), item);
+            }
+        }
+        return new FederatedSearchResponse(new ArrayList<>(merged.values()), remoteItems == null);
+    }
+
+    private static List<DabasItemResponse> awaitRemote(CompletableFuture<List<DabasItemResponse>> remote, String q, long deadlineNanos) {
+        try {
+            return remote.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.debug("DABAS search for {} missed the deadline", q);
+        } catch (ExecutionException e) {
+            log.warn("DABAS search for {} failed: {}", q, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        federatedExecutor.shutdownNow();
+    }
 }
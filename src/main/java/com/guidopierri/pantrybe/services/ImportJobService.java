@@ -0,0 +1,91 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.models.ImportMode;
+import com.guidopierri.pantrybe.services.imports.ImportJob;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Service class for running DABAS imports in the background.
+ * <p>
+ * Imports are submitted as {@link ImportJob}s and run one at a time on a dedicated thread, so the
+ * request that starts an import returns immediately and the progress can be polled with the job id.
+ * Only a limited number of finished jobs are kept.
+ */
+@Service
+@Slf4j
+public class ImportJobService {
+    private static final int MAX_FINISHED_JOBS = 20;
+
+    private final DabasImportService dabasImportService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("dabas-import-"));
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>();
+
+    public ImportJobService(DabasImportService dabasImportService) {
+        this.dabasImportService = dabasImportService;
+    }
+
+    /**
+     * Submits an import. If an import is already queued or running, that job is returned instead of
+     * starting a second one.
+     *
+     * @param mode Whether to fetch every article or only the changed ones.
+     * @return The job tracking the import.
+     */
+    public synchronized ImportJob submit(ImportMode mode) {
+        Optional<ImportJob> active = jobs.values().stream().filter(ImportJob::isActive).findFirst();
+        if (active.isPresent()) {
+            log.info("DABAS import job {} is already {}", active.get().getId(), active.get().getStatus());
+            return active.get();
+        }
+        ImportJob job = new ImportJob(mode);
+        jobs.put(job.getId(), job);
+        evictFinishedJobs();
+        executor.execute(() -> run(job));
+        log.info("Queued DABAS import job {} ({} mode)", job.getId(), mode);
+        return job;
+    }
+
+    /**
+     * @param id The id of the job.
+     * @return The job, if it is still known.
+     */
+    public synchronized Optional<ImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(ImportJob job) {
+        try {
+            dabasImportService.importArticlesGtin(job.getMode(), job);
+            log.info("DABAS import job {} completed", job.getId());
+        } catch (Exception e) {
+            log.error("DABAS import job {} failed: {}", job.getId(), e.getMessage(), e);
+            job.failed(e);
+        }
+    }
+
+    private void evictFinishedJobs() {
+        long finished = jobs.values().stream().filter(job -> !job.isActive()).count();
+        Iterator<ImportJob> iterator = jobs.values().iterator();
+        while (finished > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            if (!iterator.next().isActive()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
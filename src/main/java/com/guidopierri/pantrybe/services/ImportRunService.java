@@ -0,0 +1,164 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.models.*;
+import com.guidopierri.pantrybe.repositories.ImportChunkRepository;
+import com.guidopierri.pantrybe.repositories.ImportFailureRepository;
+import com.guidopierri.pantrybe.repositories.ImportRunRepository;
+import com.guidopierri.pantrybe.services.imports.ImportCheckpointTracker;
+import com.guidopierri.pantrybe.services.imports.ImportStats;
+import com.guidopierri.pantrybe.services.imports.ImportTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service class for persisting the progress of DABAS imports.
+ * <p>
+ * Every import is recorded as an {@link ImportRun}. Completed chunks of the listing are committed as
+ * {@link ImportChunk} rows, which advance the cursor of the run, and articles that could not be imported
+ * are recorded as {@link ImportFailure} rows so they can be retried at the end of the run.
+ * An unfinished run, e.g. one interrupted by a restart, is resumed from its cursor by the next import.
+ */
+@Service
+@Slf4j
+public class ImportRunService {
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private final ImportRunRepository importRunRepository;
+    private final ImportChunkRepository importChunkRepository;
+    private final ImportFailureRepository importFailureRepository;
+
+    public ImportRunService(ImportRunRepository importRunRepository, ImportChunkRepository importChunkRepository, ImportFailureRepository importFailureRepository) {
+        this.importRunRepository = importRunRepository;
+        this.importChunkRepository = importChunkRepository;
+        this.importFailureRepository = importFailureRepository;
+    }
+
+    /**
+     * Resumes the latest unfinished import run, or starts a new one if every run has completed.
+     * <p>
+     * A resumed run keeps its original mode. Failures recorded after its cursor are discarded,
+     * since those articles are imported again.
+     *
+     * @param mode The mode of the new run.
+     * @return The run to import.
+     */
+    @Transactional
+    public ImportRun startOrResume(ImportMode mode) {
+        Optional<ImportRun> unfinished = importRunRepository.findFirstByStatusInOrderByIdDesc(
+                List.of(ImportRunStatus.RUNNING, ImportRunStatus.FAILED));
+        if (unfinished.isPresent()) {
+            ImportRun run = unfinished.get();
+            log.info("Resuming DABAS import run {} from position {}", run.getId(), run.getCursorPosition());
+            importFailureRepository.deleteAllByRunIdAndPositionGreaterThanEqual(run.getId(), run.getCursorPosition());
+            run.setStatus(ImportRunStatus.RUNNING);
+            return importRunRepository.save(run);
+        }
+        return importRunRepository.save(new ImportRun(mode));
+    }
+
+    /**
+     * Commits a completed chunk of the listing and advances the cursor of the run past it.
+     * <p>
+     * A resumed run only counts the positions from its cursor, so a chunk that was already committed, e.g. the
+     * partial last chunk of the run, is extended by the new progress instead of being inserted again.
+     *
+     * @param runId The id of the run.
+     * @param chunk The completed chunk.
+     */
+    @Transactional
+    public void commitChunk(long runId, ImportCheckpointTracker.Chunk chunk) {
+        ImportChunk checkpoint = importChunkRepository.findByRunIdAndChunkIndex(runId, chunk.getIndex())
+                .orElseGet(() -> new ImportChunk(runId, chunk.getIndex(), chunk.getStartPosition(), chunk.getStartPosition(), 0, 0, 0, 0));
+        checkpoint.extend(chunk.getEndPosition(), chunk.getWritten(), chunk.getNotFound(), chunk.getFailed(), chunk.getSkipped());
+        importChunkRepository.save(checkpoint);
+        ImportRun run = importRunRepository.findById(runId).orElseThrow();
+        run.setCursorPosition(chunk.getEndPosition());
+        run.setWritten(run.getWritten() + chunk.getWritten());
+        run.setNotFound(run.getNotFound() + chunk.getNotFound());
+        run.setFailed(run.getFailed() + chunk.getFailed());
+        run.setSkipped(run.getSkipped() + chunk.getSkipped());
+        importRunRepository.save(run);
+    }
+
+    /**
+     * Adds an article to the retry list of the run.
+     *
+     * @param runId The id of the run.
+     * @param task  The article that could not be imported.
+     * @param error The cause of the failure.
+     */
+    public void recordFailure(long runId, ImportTask task, Exception error) {
+        importFailureRepository.save(new ImportFailure(runId, task.gtin(), task.lastModified(), task.position(), describe(error)));
+    }
+
+    public List<ImportFailure> getFailures(long runId) {
+        return importFailureRepository.findAllByRunIdOrderByPosition(runId);
+    }
+
+    /**
+     * Removes an article from the retry list after it was imported successfully.
+     *
+     * @param failure The retried failure.
+     */
+    public void resolveFailure(ImportFailure failure) {
+        importFailureRepository.delete(failure);
+    }
+
+    /**
+     * Keeps an article on the retry list after another failed attempt.
+     *
+     * @param failure The retried failure.
+     * @param error   The cause of the failure.
+     */
+    public void recordFailedRetry(ImportFailure failure, Exception error) {
+        failure.setAttempts(failure.getAttempts() + 1);
+        failure.setError(describe(error));
+        importFailureRepository.save(failure);
+    }
+
+    /**
+     * Marks the run as completed.
+     *
+     * @param runId      The id of the run.
+     * @param retryStats The statistics of the retried failures, or null if nothing was retried.
+     * @return The completed run.
+     */
+    @Transactional
+    public ImportRun complete(long runId, ImportStats retryStats) {
+        ImportRun run = importRunRepository.findById(runId).orElseThrow();
+        if (retryStats != null) {
+            run.setWritten(run.getWritten() + retryStats.getWritten());
+            run.setNotFound(run.getNotFound() + retryStats.getNotFound());
+        }
+        run.setFailed(importFailureRepository.countByRunId(runId));
+        run.setStatus(ImportRunStatus.COMPLETED);
+        run.setFinishedAt(LocalDateTime.now());
+        return importRunRepository.save(run);
+    }
+
+    /**
+     * Marks the run as failed. A failed run is resumed by the next import.
+     *
+     * @param runId The id of the run.
+     */
+    @Transactional
+    public void fail(long runId) {
+        importRunRepository.findById(runId).ifPresent(run -> {
+            run.setStatus(ImportRunStatus.FAILED);
+            run.setFinishedAt(LocalDateTime.now());
+            importRunRepository.save(run);
+        });
+    }
+
+    private static String describe(Exception error) {
+        if (error == null) {
+            return null;
+        }
+        String description = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+    }
+}
@@ -0,0 +1,97 @@
+package com.guidopierri.pantrybe.services.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket whose refill rate adapts to how the server responds.
+ * <p>
+ * The rate increases additively on every successful call, up to {@code maxRate}, and is multiplied by
+ * {@code decreaseFactor} whenever the server throttles or fails, down to {@code minRate}. A throttled call
+ * also empties the bucket, so the calls waiting for a token are spread out at the lowered rate instead of
+ * being released as a burst.
+ */
+public class AdaptiveRateLimiter {
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private final double decreaseFactor;
+    private final double burst;
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param initialRate    The permitted calls per second to start with.
+     * @param minRate        The lowest permitted calls per second.
+     * @param maxRate        The highest permitted calls per second.
+     * @param increaseStep   The calls per second added after every successful call.
+     * @param decreaseFactor The factor the rate is multiplied by after a throttled call, between 0 and 1.
+     * @param burst          The maximum number of tokens in the bucket.
+     */
+    public AdaptiveRateLimiter(double initialRate, double minRate, double maxRate,
+                               double increaseStep, double decreaseFactor, double burst) {
+        if (minRate <= 0 || maxRate < minRate || decreaseFactor <= 0 || decreaseFactor >= 1 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limiter settings");
+        }
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increaseStep = increaseStep;
+        this.decreaseFactor = decreaseFactor;
+        this.burst = burst;
+        this.rate = Math.max(minRate, Math.min(maxRate, initialRate));
+        this.tokens = Math.min(burst, this.rate);
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes a token from the bucket, waiting until one is available.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) ((1 - tokens) / rate * NANOS_PER_SECOND);
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1));
+        }
+    }
+
+    /**
+     * Ramps the rate up after a successful call.
+     */
+    public synchronized void onSuccess() {
+        refill();
+        rate = Math.min(maxRate, rate + increaseStep);
+    }
+
+    /**
+     * Backs the rate off after the server throttled or failed a call.
+     */
+    public synchronized void onThrottle() {
+        refill();
+        rate = Math.max(minRate, rate * decreaseFactor);
+        tokens = Math.min(tokens, 0);
+    }
+
+    /**
+     * @return The currently permitted calls per second.
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) / NANOS_PER_SECOND * rate);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,183 @@
+package com.guidopierri.pantrybe.services.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.exceptions.DabasException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming reader for a single DABAS article ({@code article/gtin/{gtin}/JSON}).
+ * <p>
+ * The article is parsed token by token straight from the response bytes with a shared JsonFactory.
+ * Only the fields of the {@link DabasItemResponse} are read; every other value, including the large
+ * nested nutrition and packaging sections, is skipped without building a tree or any strings.
+ * Missing fields are read as empty strings, the same as {@code JsonNode.path(...).asText()}.
+ * <p>
+ * The declared allergens ({@code Allergener}) are kept as a compact list of their GS1 allergen type code and
+ * level of containment, e.g. {@code AW:CONTAINS,AM:MAY_CONTAIN}, which is stored with the article and indexed by
+ * the {@link com.guidopierri.pantrybe.services.search.DabasItemIndex}.
+ */
+public final class DabasArticleReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private DabasArticleReader() {
+    }
+
+    /**
+     * Reads an article from a response body.
+     *
+     * @param body The response body of the article request.
+     * @return The article.
+     * @throws IOException    If the body cannot be read or is not valid JSON.
+     * @throws DabasException If the body is empty or is not a JSON object.
+     */
+    public static DabasItemResponse read(InputStream body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new DabasException("Error validating DABAS data");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new DabasException("Unexpected DABAS article format");
+            }
+            return readArticle(parser);
+        }
+    }
+
+    private static DabasItemResponse readArticle(JsonParser parser) throws IOException {
+        String gtin = "";
+        String productName = "";
+        String brand = "";
+        String mainGroup = "";
+        String imageLink = null;
+        String size = "";
+        String ingredients = "";
+        String productClassifications = "";
+        String bruteWeight = "";
+        String drainedWeightUnit = "";
+        String drainedWeight = "";
+        String allergens = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "GTIN" -> gtin = text(parser, value);
+                case "Produktnamn" -> productName = text(parser, value);
+                case "Varumarke" -> brand = nestedText(parser, value, "Varumarke");
+                case "Varugrupp" -> mainGroup = nestedText(parser, value, "HuvudgruppBenamning");
+                case "Bilder" -> imageLink = firstImageLink(parser, value);
+                case "Storlek" -> size = text(parser, value);
+                case "Ingrediensforteckning" -> ingredients = text(parser, value);
+                case "Produktkod" -> productClassifications = text(parser, value);
+                case "Nettoinnehall" -> bruteWeight = text(parser, value);
+                case "MangdFardigVaraEnhetKod" -> drainedWeightUnit = text(parser, value);
+                case "MangdFardigVara_Formatted" -> drainedWeight = text(parser, value);
+                case "Allergener" -> allergens = allergens(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+        ingredients = ingredients.replace("\r", "").replace("\n", "").replace("+", "").replace("*", "");
+        return new DabasItemResponse(gtin,
+                productName,
+                brand,
+                imageLink,
+                mainGroup,
+                size,
+                ingredients,
+                productClassifications,
+                bruteWeight,
+                drainedWeight + " " + drainedWeightUnit,
+                allergens);
+    }
+
+    /**
+     * Reads the allergens as a comma separated list of {@code Allergenkod:Nivakod}, skipping incomplete ones.
+     */
+    private static String allergens(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return "";
+        }
+        StringBuilder allergens = new StringBuilder();
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (element != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String code = "";
+            String level = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken nestedValue = parser.nextToken();
+                switch (field) {
+                    case "Allergenkod" -> code = text(parser, nestedValue);
+                    case "Nivakod" -> level = text(parser, nestedValue);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (!code.isBlank() && !level.isBlank()) {
+                if (!allergens.isEmpty()) {
+                    allergens.append(',');
+                }
+                allergens.append(code.trim()).append(':').append(level.trim());
+            }
+        }
+        return allergens.toString();
+    }
+
+    /**
+     * Reads a scalar value, skipping objects and arrays.
+     */
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value.isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    /**
+     * Reads a scalar field of an object value, skipping everything else in it.
+     */
+    private static String nestedText(JsonParser parser, JsonToken value, String nestedField) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return "";
+        }
+        String result = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken nestedValue = parser.nextToken();
+            if (nestedField.equals(field)) {
+                result = text(parser, nestedValue);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the link of the first image, or null if there are no images.
+     */
+    private static String firstImageLink(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        JsonToken first = parser.nextToken();
+        if (first == JsonToken.END_ARRAY) {
+            return null;
+        }
+        String link = nestedText(parser, first, "Lank");
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+        }
+        return link;
+    }
+}
@@ -0,0 +1,19 @@
+package com.guidopierri.pantrybe.services.client;
+
+/**
+ * The kinds of calls made to the DABAS API. Every call type has its own rate limiter and retry policy.
+ */
+public enum DabasCallType {
+    /**
+     * Lookup of a single article by GTIN ({@code article/gtin/{gtin}/JSON}).
+     */
+    ARTICLE,
+    /**
+     * Search of the base articles ({@code articles/basesearchparameter/{parameter}/JSON}).
+     */
+    BASE_SEARCH,
+    /**
+     * Listing of every article ({@code articles/JSON}).
+     */
+    LISTING
+}
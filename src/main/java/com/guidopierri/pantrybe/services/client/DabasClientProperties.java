@@ -0,0 +1,73 @@
+package com.guidopierri.pantrybe.services.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Rate and retry policy of the DABAS client, configured per call type under
+ * {@code dabas.client.calls.<call-type>}, e.g. {@code dabas.client.calls.article.max-attempts=3}.
+ */
+@Component
+@ConfigurationProperties(prefix = "dabas.client")
+@Getter
+@Setter
+public class DabasClientProperties {
+    private Map<DabasCallType, CallPolicy> calls = new EnumMap<>(DabasCallType.class);
+
+    /**
+     * @param callType The call type.
+     * @return The policy of the call type, or the default policy if none is configured.
+     */
+    public CallPolicy policy(DabasCallType callType) {
+        return calls.getOrDefault(callType, new CallPolicy());
+    }
+
+    @Getter
+    @Setter
+    public static class CallPolicy {
+        /**
+         * The number of attempts, including the first one, before a call fails.
+         */
+        private int maxAttempts = 3;
+        /**
+         * The upper bound of the backoff before the first retry. It doubles for every further retry.
+         */
+        private Duration initialBackoff = Duration.ofMillis(200);
+        /**
+         * The upper bound of any backoff, including one requested by a Retry-After header.
+         */
+        private Duration maxBackoff = Duration.ofSeconds(5);
+        /**
+         * The time to wait for the response headers, or null to use {@code dabas.client.request-timeout}.
+         */
+        private Duration requestTimeout;
+        /**
+         * The permitted calls per second to start with.
+         */
+        private double initialRate = 10;
+        private double minRate = 1;
+        private double maxRate = 50;
+        /**
+         * The calls per second added to the permitted rate after every successful call.
+         */
+        private double rateIncrease = 0.5;
+        /**
+         * The factor the permitted rate is multiplied by after a throttled call.
+         */
+        private double rateDecrease = 0.5;
+        /**
+         * The number of calls that can be made at once after a quiet period.
+         */
+        private double burst = 10;
+
+        public AdaptiveRateLimiter newRateLimiter() {
+            return new AdaptiveRateLimiter(initialRate, minRate, maxRate, rateIncrease, rateDecrease, burst);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Two-stage pipeline used to import articles from the DABAS API.
+ * <p>
+ * The fetch stage runs a fixed number of worker threads that look up articles concurrently,
+ * while a semaphore caps the number of lookups in flight across all workers. Fetched articles are
+ * put on a bounded queue, so a slow writer applies back pressure to the fetchers instead of
+ * buffering the whole catalog in memory.
+ * <p>
+ * The write stage is a single thread that drains the queue and hands the articles to the writer
+ * in batches of {@code batchSize}, flushing a partial batch when the queue runs dry.
+ *
+ * @param <T> The type of the tasks submitted to the pipeline, e.g. a GTIN.
+ * @param <R> The type of the fetched articles handed to the writer.
+ */
+@Slf4j
+public class DabasImportPipeline<T, R> implements AutoCloseable {
+    private static final Object END = new Object();
+    private static final long FLUSH_INTERVAL_MILLIS = 500;
+
+    private final ExecutorService fetchExecutor;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Object> writeQueue;
+    private final Thread writerThread;
+    private final int batchSize;
+    private final Fetcher<T, R> fetcher;
+    private final Consumer<List<R>> writer;
+    private final Listener<T> listener;
+    private final ImportStats stats = new ImportStats();
+
+    /**
+     * @param fetchWorkers  The number of threads fetching articles.
+     * @param maxInFlight   The maximum number of fetches in flight at any time.
+     * @param queueCapacity The maximum number of fetched articles waiting to be written.
+     * @param batchSize     The number of articles handed to the writer at once.
+     * @param fetcher       Looks up a single article.
+     * @param writer        Persists a batch of articles.
+     */
+    public DabasImportPipeline(int fetchWorkers, int maxInFlight, int queueCapacity, int batchSize,
+                               Fetcher<T, R> fetcher, Consumer<List<R>> writer) {
+        this(fetchWorkers, maxInFlight, queueCapacity, batchSize, fetcher, writer, (task, outcome, error) -> {
+        });
+    }
+
+    /**
+     * @param fetchWorkers  The number of threads fetching articles.
+     * @param maxInFlight   The maximum number of fetches in flight at any time.
+     * @param queueCapacity The maximum number of fetched articles waiting to be written.
+     * @param batchSize     The number of articles handed to the writer at once.
+     * @param fetcher       Looks up a single article.
+     * @param writer        Persists a batch of articles.
+     * @param listener      Notified once the outcome of every submitted task is final.
+     */
+    public DabasImportPipeline(int fetchWorkers, int maxInFlight, int queueCapacity, int batchSize,
+                               Fetcher<T, R> fetcher, Consumer<List<R>> writer, Listener<T> listener) {
+        this.fetchExecutor = Executors.newFixedThreadPool(fetchWorkers, new CustomizableThreadFactory("dabas-fetch-"));
+        this.inFlight = new Semaphore(maxInFlight);
+        this.writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.fetcher = fetcher;
+        this.writer = writer;
+        this.listener = listener;
+        this.writerThread = new Thread(this::drain, "dabas-writer");
+        this.writerThread.start();
+    }
+
+    /**
+     * Submits a task to the fetch stage, blocking while the in-flight limit is reached.
+     *
+     * @param task The task to fetch.
+     * @throws InterruptedException If the thread is interrupted while waiting for a free slot.
+     */
+    public void submit(T task) throws InterruptedException {
+        inFlight.acquire();
+        stats.recordSubmitted();
+        try {
+            fetchExecutor.execute(() -> fetch(task));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until every submitted task has been fetched and written.
+     *
+     * @return The final statistics of the import.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public ImportStats awaitCompletion() throws InterruptedException {
+        fetchExecutor.shutdown();
+        while (!fetchExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.info("Waiting for DABAS fetches to complete: {}", stats);
+        }
+        writeQueue.put(END);
+        writerThread.join();
+        stats.finish();
+        return stats;
+    }
+
+    public ImportStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        fetchExecutor.shutdownNow();
+        if (writerThread.isAlive()) {
+            writerThread.interrupt();
+        }
+    }
+
+    private void fetch(T task) {
+        try {
+            Optional<R> result = fetcher.fetch(task);
+            if (result.isPresent()) {
+                stats.recordFetched();
+                writeQueue.put(new Fetched<>(task, result.get()));
+            } else {
+                stats.recordNotFound();
+                listener.onCompleted(task, ImportOutcome.NOT_FOUND, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stats.recordFailed(1);
+            listener.onCompleted(task, ImportOutcome.FAILED, e);
+        } catch (Exception e) {
+            log.warn("Unable to fetch {}: {}", task, e.getMessage());
+            stats.recordFailed(1);
+            listener.onCompleted(task, ImportOutcome.FAILED, e);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        List<Fetched<T, R>> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Object next = writeQueue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (next == END) {
+                    write(batch);
+                    return;
+                }
+                if (next != null) {
+                    batch.add((Fetched<T, R>) next);
+                }
+                if (batch.size() >= batchSize || (next == null && !batch.isEmpty())) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stats.recordFailed(batch.size());
+        }
+    }
+
+    private void write(List<Fetched<T, R>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            writer.accept(batch.stream().map(Fetched::result).toList());
+            stats.recordWritten(batch.size());
+            batch.forEach(fetched -> listener.onCompleted(fetched.task(), ImportOutcome.WRITTEN, null));
+            log.info("Imported {} of {} articles ({} articles/sec)", stats.getWritten(), stats.getSubmitted(),
+                    String.format("%.1f", stats.getArticlesPerSecond()));
+        } catch (RuntimeException e) {
+            log.error("Unable to write batch of {} articles: {}", batch.size(), e.getMessage());
+            stats.recordFailed(batch.size());
+            batch.forEach(fetched -> listener.onCompleted(fetched.task(), ImportOutcome.FAILED, e));
+        }
+    }
+
+    private record Fetched<T, R>(T task, R result) {
+    }
+
+    /**
+     * Looks up a single article for the fetch stage.
+     *
+     * @param <T> The type of the task.
+     * @param <R> The type of the fetched article.
+     */
+    @FunctionalInterface
+    public interface Fetcher<T, R> {
+        Optional<R> fetch(T task) throws Exception;
+    }
+
+    /**
+     * Receives the final outcome of every task submitted to the pipeline.
+     *
+     * @param <T> The type of the task.
+     */
+    @FunctionalInterface
+    public interface Listener<T> {
+        /**
+         * @param task    The completed task.
+         * @param outcome Whether the article was written, not found or failed.
+         * @param error   The cause of the failure, or null.
+         */
+        void onCompleted(T task, ImportOutcome outcome, Exception error);
+    }
+}
@@ -0,0 +1,79 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.guidopierri.pantrybe.exceptions.DabasException;
+import com.guidopierri.pantrybe.models.dabas.search.Search;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming reader for the DABAS article listing ({@code articles/JSON}).
+ * <p>
+ * The listing is parsed token by token, so only the article currently being read is held in memory
+ * regardless of the size of the catalog. Only the fields needed by the import are kept; all other
+ * values are skipped without being materialised.
+ */
+public final class DabasListingReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private DabasListingReader() {
+    }
+
+    /**
+     * Reads the listing and hands every article to the handler as soon as it is parsed.
+     *
+     * @param body    The response body of the listing request.
+     * @param handler Receives the GTIN, SkapadDatum and SenastAndradDatum of every listed article.
+     * @return The number of articles in the listing.
+     * @throws IOException          If the body cannot be read or is not valid JSON.
+     * @throws InterruptedException If the handler is interrupted.
+     */
+    public static int read(InputStream body, Handler handler) throws IOException, InterruptedException {
+        int count = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new DabasException("Unexpected DABAS listing format");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Search article = readArticle(parser);
+                if (article.getGtin() != null) {
+                    handler.accept(article);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Search readArticle(JsonParser parser) throws IOException {
+        Search article = new Search();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "GTIN" -> article.setGtin(parser.getValueAsString());
+                case "SkapadDatum" -> article.setSkapadDatum(parser.getValueAsString());
+                case "SenastAndradDatum" -> article.setSenastAndradDatum(parser.getValueAsString());
+                default -> {
+                    // not needed by the import
+                }
+            }
+        }
+        return article;
+    }
+
+    /**
+     * Receives the articles of the listing.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void accept(Search article) throws InterruptedException;
+    }
+}
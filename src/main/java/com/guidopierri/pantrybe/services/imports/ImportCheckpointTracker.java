@@ -0,0 +1,151 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Tracks which positions of the DABAS listing have completed during an import and reports
+ * the chunks that can be checkpointed.
+ * <p>
+ * The listing is divided into chunks of {@code chunkSize} consecutive positions. Articles complete
+ * out of order because they are fetched concurrently, so a chunk is only committed once all of its
+ * positions have completed and every chunk before it has been committed. The committed cursor is
+ * therefore always safe to resume from.
+ */
+public class ImportCheckpointTracker {
+    private final int chunkSize;
+    private final Consumer<Chunk> onCommit;
+    private final Map<Long, Chunk> openChunks = new HashMap<>();
+    private long nextChunkIndex;
+    private long listedUntil;
+    private boolean listingFinished;
+
+    /**
+     * @param chunkSize      The number of listing positions per chunk.
+     * @param cursorPosition The chunk aligned position the import starts from.
+     * @param onCommit       Receives every committed chunk, in listing order.
+     */
+    public ImportCheckpointTracker(int chunkSize, long cursorPosition, Consumer<Chunk> onCommit) {
+        this.chunkSize = chunkSize;
+        this.onCommit = onCommit;
+        this.nextChunkIndex = cursorPosition / chunkSize;
+        this.listedUntil = cursorPosition;
+    }
+
+    /**
+     * Registers a listing position. Positions must be registered in listing order,
+     * before their outcome is reported.
+     *
+     * @param position The position in the listing.
+     */
+    public synchronized void register(long position) {
+        chunk(position).expected++;
+        listedUntil = position + 1;
+        commitCompletedChunks();
+    }
+
+    /**
+     * Records the outcome of a registered position.
+     *
+     * @param position The position in the listing.
+     * @param outcome  The final outcome of the article at that position.
+     */
+    public synchronized void complete(long position, ImportOutcome outcome) {
+        Chunk chunk = chunk(position);
+        chunk.completed++;
+        switch (outcome) {
+            case WRITTEN -> chunk.written++;
+            case NOT_FOUND -> chunk.notFound++;
+            case FAILED -> chunk.failed++;
+            case SKIPPED -> chunk.skipped++;
+        }
+        commitCompletedChunks();
+    }
+
+    /**
+     * Marks the end of the listing, which allows the last, partially filled chunk to be committed.
+     */
+    public synchronized void finishListing() {
+        listingFinished = true;
+        commitCompletedChunks();
+    }
+
+    /**
+     * @return The position up to which every article has completed.
+     */
+    public synchronized long getCursorPosition() {
+        return Math.min(nextChunkIndex * chunkSize, listedUntil);
+    }
+
+    private Chunk chunk(long position) {
+        return openChunks.computeIfAbsent(position / chunkSize, index ->
+                new Chunk(index, index * chunkSize, (index + 1) * chunkSize));
+    }
+
+    private void commitCompletedChunks() {
+        while (true) {
+            Chunk chunk = openChunks.get(nextChunkIndex);
+            if (chunk == null) {
+                return;
+            }
+            boolean fullyListed = listingFinished || listedUntil >= chunk.endPosition;
+            if (!fullyListed || chunk.completed < chunk.expected) {
+                return;
+            }
+            chunk.endPosition = Math.min(chunk.endPosition, listedUntil);
+            openChunks.remove(nextChunkIndex);
+            nextChunkIndex++;
+            onCommit.accept(chunk);
+        }
+    }
+
+    /**
+     * Progress of a range of listing positions.
+     */
+    public static class Chunk {
+        private final long index;
+        private final long startPosition;
+        private long endPosition;
+        private long expected;
+        private long completed;
+        private long written;
+        private long notFound;
+        private long failed;
+        private long skipped;
+
+        Chunk(long index, long startPosition, long endPosition) {
+            this.index = index;
+            this.startPosition = startPosition;
+            this.endPosition = endPosition;
+        }
+
+        public long getIndex() {
+            return index;
+        }
+
+        public long getStartPosition() {
+            return startPosition;
+        }
+
+        public long getEndPosition() {
+            return endPosition;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getNotFound() {
+            return notFound;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import com.guidopierri.pantrybe.dtos.responses.ImportJobResponse;
+import com.guidopierri.pantrybe.dtos.responses.ImportSummary;
+import com.guidopierri.pantrybe.models.ImportMode;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the progress of an import running in the background.
+ * <p>
+ * The import reports to the job as it goes, so the status can be read at any time while the
+ * import is running. Only the most recent errors are kept to bound the memory of a failing import.
+ * <p>
+ * The counters of the listing are kept while the failed articles are retried at the end of the run, and the
+ * progress of the retry is reported separately, so the counters never start over.
+ */
+public class ImportJob {
+    private static final int MAX_RECENT_ERRORS = 50;
+
+    private final String id = UUID.randomUUID().toString();
+    private final ImportMode mode;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final AtomicLong listed = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final Deque<String> recentErrors = new ArrayDeque<>();
+    private volatile Status status = Status.QUEUED;
+    private volatile Long runId;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile ImportStats stats;
+    private volatile ImportStats retryStats;
+    private volatile ImportSummary summary;
+
+    public ImportJob(ImportMode mode) {
+        this.mode = mode;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ImportMode getMode() {
+        return mode;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+
+    public ImportSummary getSummary() {
+        return summary;
+    }
+
+    public void started(long runId) {
+        this.runId = runId;
+        this.startedAt = LocalDateTime.now();
+        this.status = Status.RUNNING;
+    }
+
+    public void listed() {
+        listed.incrementAndGet();
+    }
+
+    public void tracking(ImportStats stats) {
+        this.stats = stats;
+    }
+
+    public void retrying(ImportStats retryStats) {
+        this.retryStats = retryStats;
+    }
+
+    public void recordError(String gtin, Exception error) {
+        errorCount.incrementAndGet();
+        synchronized (recentErrors) {
+            if (recentErrors.size() == MAX_RECENT_ERRORS) {
+                recentErrors.removeFirst();
+            }
+            recentErrors.addLast(gtin + ": " + (error == null ? "unknown error" : error.getMessage()));
+        }
+    }
+
+    public void completed(ImportSummary summary) {
+        this.summary = summary;
+        this.finishedAt = LocalDateTime.now();
+        this.status = Status.COMPLETED;
+    }
+
+    /**
+     * Marks the job as failed.
+     *
+     * @param error The cause of the failure.
+     */
+    public void failed(Exception error) {
+        recordError("import", error);
+        this.finishedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+
+    /**
+     * @return A snapshot of the current progress of the job.
+     */
+    public ImportJobResponse toResponse() {
+        ImportStats current = stats;
+        ImportStats retry = retryStats;
+        List<String> errors;
+        synchronized (recentErrors) {
+            errors = List.copyOf(recentErrors);
+        }
+        return new ImportJobResponse(id, status, mode, runId, submittedAt, startedAt, finishedAt,
+                listed.get(),
+                current == null ? 0 : current.getSubmitted(),
+                current == null ? 0 : current.getWritten(),
+                current == null ? 0 : current.getNotFound(),
+                current == null ? 0 : current.getFailed(),
+                current == null ? 0 : current.getArticlesPerSecond(),
+                retry == null ? 0 : retry.getSubmitted(),
+                retry == null ? 0 : retry.getWritten(),
+                errorCount.get(),
+                errors,
+                summary);
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
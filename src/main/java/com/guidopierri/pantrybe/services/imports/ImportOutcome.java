@@ -0,0 +1,14 @@
+package com.guidopierri.pantrybe.services.imports;
+
+/**
+ * The final outcome of a single listed article during an import.
+ */
+public enum ImportOutcome {
+    WRITTEN,
+    NOT_FOUND,
+    FAILED,
+    /**
+     * The article was unchanged since the last import and was not fetched.
+     */
+    SKIPPED
+}
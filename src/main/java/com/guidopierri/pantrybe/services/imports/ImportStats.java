@@ -0,0 +1,90 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters for a running DABAS import.
+ * <p>
+ * All counters are updated concurrently by the fetch workers and the writer stage,
+ * so they can be read at any time to report progress and throughput.
+ */
+public class ImportStats {
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder fetched = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    void recordSubmitted() {
+        submitted.increment();
+    }
+
+    void recordFetched() {
+        fetched.increment();
+    }
+
+    void recordNotFound() {
+        notFound.increment();
+    }
+
+    void recordFailed(long count) {
+        failed.add(count);
+    }
+
+    void recordWritten(long count) {
+        written.add(count);
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getFetched() {
+        return fetched.sum();
+    }
+
+    public long getNotFound() {
+        return notFound.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getElapsedMillis() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * @return The number of articles written per second since the import started.
+     */
+    public double getArticlesPerSecond() {
+        long elapsedMillis = getElapsedMillis();
+        return elapsedMillis == 0 ? 0 : getWritten() * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportStats{" +
+                "submitted=" + getSubmitted() +
+                ", fetched=" + getFetched() +
+                ", notFound=" + getNotFound() +
+                ", failed=" + getFailed() +
+                ", written=" + getWritten() +
+                ", elapsedMillis=" + getElapsedMillis() +
+                ", articlesPerSecond=" + String.format("%.1f", getArticlesPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package com.guidopierri.pantrybe.services.imports;
+
+/**
+ * An article of the DABAS listing submitted to the import pipeline.
+ *
+ * @param position     The position of the article in the listing.
+ * @param gtin         The GTIN of the article.
+ * @param lastModified The SenastAndradDatum of the article in the listing.
+ */
+public record ImportTask(long position, String gtin, String lastModified) {
+}
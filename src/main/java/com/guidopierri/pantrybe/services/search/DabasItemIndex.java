@@ -0,0 +1,669 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.dtos.DabasItemIndexEntry;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemFacets;
+import com.guidopierri.pantrybe.dtos.responses.FacetCount;
+import com.guidopierri.pantrybe.models.Allergen;
+import com.guidopierri.pantrybe.models.SearchOrder;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.services.DabasCatalogChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory inverted index over the name, brand, category and ingredient tokens of the stored DABAS articles.
+ * <p>
+ * The free text search of the {@link DabasItemSearchSpecification} matches every word as a substring of the
+ * name or the brand, which no database index can serve. The index answers the same query without touching the
+ * database: names and brands are split into the folded tokens of {@link SearchText}, the same way as the search
+ * words, so a word is a substring of a name exactly when it is a substring of one of its tokens. Each word is looked
+ * up by scanning the token dictionary, which is far smaller than the table, and the posting lists of the matching
+ * tokens are combined. Every posting records the fields the token occurs in, so a search by name only uses the
+ * tokens of the names and brands.
+ * <p>
+ * A fuzzy search also matches the tokens within a small edit distance of a word, see {@link #maxEdits}. They are
+ * found with a Levenshtein walk over the sorted dictionary: the rows of the edit distance table are shared by the
+ * tokens with a common prefix, and the tokens of a prefix that is already too far from the word are skipped.
+ * <p>
+ * Articles are numbered by their position in name order, and the posting lists hold these positions, so the
+ * combined result is already sorted the same way as the database query and a page is a range of it. The order is
+ * the one the database returns the articles in, by name and id in the collation of the name column, instead of a
+ * Java comparator, so a page served by the index and one served by the database agree when the path changes
+ * during a pagination, e.g. while the index is rebuilt.
+ * <p>
+ * A search ordered by {@link SearchOrder#RELEVANCE} matches the words in every field and ranks the articles with
+ * BM25F: the occurrences of a token are weighted by field and normalized by the length of the field, see
+ * {@link #FIELD_WEIGHTS}. The score of every posting is computed when the index is built, so a search only adds up
+ * the scores of the matching postings, discounted when the word is only a prefix, a substring or a typo of the
+ * token, and selects the best {@code offset + size} articles with a bounded heap.
+ * <p>
+ * The articles of every category and brand are kept in a {@link FacetBitmap}, so a search can be filtered by them,
+ * and the number of results per category and brand is counted by intersecting the bitmaps with the results.
+ * <p>
+ * The declared {@link Allergen allergens} are kept the same way, one bitmap of the articles containing each allergen
+ * and one of those that may contain it, so "contains gluten" intersects the results with a bitmap and "without milk"
+ * subtracts both bitmaps of milk. An ingredient filter unions the postings of the ingredient tokens containing the
+ * word, so "mjolk" also covers "skummjolkspulver", and intersects the results with them or subtracts them.
+ * <p>
+ * The index is built when the application is ready and rebuilt whenever a {@link DabasCatalogChangedEvent} is
+ * published. A rebuild creates a new snapshot and swaps it in, so searches are never blocked by it.
+ */
+@Component
+@Slf4j
+public class DabasItemIndex {
+    private static final int NAME = 0;
+    private static final int BRAND = 1;
+    private static final int INGREDIENTS = 3;
+    private static final byte NAME_OR_BRAND = (byte) (1 << NAME | 1 << BRAND);
+    private static final byte ANY_FIELD = (byte) 0xf;
+    private static final byte INGREDIENTS_ONLY = (byte) (1 << INGREDIENTS);
+    /**
+     * The weight of an occurrence of a token in the name, the brand, the category and the ingredients.
+     */
+    private static final float[] FIELD_WEIGHTS = {3.0f, 1.5f, 1.0f, 0.5f};
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float EXACT = 1.0f;
+    private static final float PREFIX = 0.7f;
+    private static final float FUZZY = 0.5f;
+    private static final float SUBSTRING = 0.4f;
+
+    private final DabasItemRepository dabasItemRepository;
+    private volatile Snapshot snapshot;
+
+    public DabasItemIndex(DabasItemRepository dabasItemRepository) {
+        this.dabasItemRepository = dabasItemRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onCatalogChanged(DabasCatalogChangedEvent event) {
+        log.info("DABAS articles changed by {}, rebuilding the search index", event.source());
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index from the database. Searches keep using the previous snapshot until the new one is ready.
+     */
+    public synchronized void rebuild() {
+        long startTime = System.currentTimeMillis();
+        try {
+            snapshot = Snapshot.build(dabasItemRepository.findAllIndexEntries());
+            log.info("Built DABAS search index of {} articles and {} tokens in {} ms",
+                    snapshot.ids.length, snapshot.terms.length, System.currentTimeMillis() - startTime);
+        } catch (RuntimeException e) {
+            log.error("Unable to build the DABAS search index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return Whether the index has been built and can answer searches.
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Finds the IDs of the articles matching every word of the free text and the filters of the search. Ordered by
+     * name, the words are matched in the name or the brand, ordered by relevance, in any indexed field.
+     *
+     * @param params   The search. A null or empty free text matches every article.
+     * @param pageable The page to return.
+     * @return A page of article IDs.
+     * @throws IllegalStateException If the index has not been built yet.
+     */
+    public Page<Long> search(SearchParams params, Pageable pageable) {
+        return search(params, pageable, 0).page();
+    }
+
+    /**
+     * Finds the IDs of the articles matching the search, see {@link #search(SearchParams, Pageable)}, and counts
+     * the results per category and brand.
+     *
+     * @param params     The search.
+     * @param pageable   The page to return.
+     * @param facetLimit The maximum number of categories and of brands to count, or 0 to count none.
+     * @return A page of article IDs, and the facets of the results if they were requested.
+     * @throws IllegalStateException If the index has not been built yet.
+     */
+    public Result search(SearchParams params, Pageable pageable, int facetLimit) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("The DABAS search index has not been built yet");
+        }
+        String freeText = params.getFreeTextSearch();
+        List<String> words = freeText == null ? List.of() : SearchText.tokens(freeText);
+        boolean relevance = params.getOrder() == SearchOrder.RELEVANCE;
+        float[] scores = relevance ? new float[current.ids.length] : null;
+        BitSet matches = current.match(words, params.isFuzzy(), relevance ? ANY_FIELD : NAME_OR_BRAND, scores);
+        current.filter(current.categories, params.getCategory(), matches);
+        current.filter(current.brands, params.getBrand(), matches);
+        current.filterAllergens(params.getContainsAllergens(), params.getWithoutAllergens(), matches);
+        current.filterIngredients(params.getIngredients(), params.getWithoutIngredients(), matches);
+        DabasItemFacets facets = facetLimit <= 0 ? null : current.facets(matches, facetLimit);
+        if (relevance) {
+            return new Result(new PageImpl<>(current.top(matches, scores, pageable), pageable, matches.cardinality()), facets);
+        }
+        List<Long> content = new ArrayList<>(pageable.getPageSize());
+        long offset = pageable.getOffset();
+        int position = matches.nextSetBit(0);
+        for (long skipped = 0; skipped < offset && position >= 0; skipped++) {
+            position = matches.nextSetBit(position + 1);
+        }
+        while (position >= 0 && content.size() < pageable.getPageSize()) {
+            content.add(current.ids[position]);
+            position = matches.nextSetBit(position + 1);
+        }
+        return new Result(new PageImpl<>(content, pageable, matches.cardinality()), facets);
+    }
+
+    /**
+     * @return The edit distance up to which a word matches a token in a fuzzy search: none for words shorter than
+     * four characters, which would match too many tokens, one up to seven characters and two beyond.
+     */
+    static int maxEdits(String word) {
+        if (word.length() < 4) {
+            return 0;
+        }
+        return word.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * A page of a search of the index.
+     *
+     * @param page   The page of article IDs.
+     * @param facets The number of results per category and brand, or null if they were not requested.
+     */
+    public record Result(Page<Long> page, DabasItemFacets facets) {
+    }
+
+    /**
+     * An immutable state of the index.
+     */
+    private static final class Snapshot {
+        /**
+         * The article IDs in name order. The position of an article in this array is its number in the posting lists.
+         */
+        private final long[] ids;
+        /**
+         * The distinct tokens of every indexed field, sorted.
+         */
+        private final String[] terms;
+        /**
+         * The ascending positions of the articles containing each term.
+         */
+        private final int[][] postings;
+        /**
+         * The fields each term occurs in, per posting, as a bit per field.
+         */
+        private final byte[][] fields;
+        /**
+         * The BM25F score of each term, per posting.
+         */
+        private final float[][] scores;
+        /**
+         * The articles of each category and brand.
+         */
+        private final Map<String, FacetBitmap> categories;
+        private final Map<String, FacetBitmap> brands;
+        /**
+         * The articles containing and possibly containing each allergen.
+         */
+        private final Map<Allergen, FacetBitmap> containing;
+        private final Map<Allergen, FacetBitmap> mayContain;
+
+        private Snapshot(long[] ids, String[] terms, int[][] postings, byte[][] fields, float[][] scores,
+                         Map<String, FacetBitmap> categories, Map<String, FacetBitmap> brands,
+                         Map<Allergen, FacetBitmap> containing, Map<Allergen, FacetBitmap> mayContain) {
+            this.ids = ids;
+            this.terms = terms;
+            this.postings = postings;
+            this.fields = fields;
+            this.scores = scores;
+            this.categories = categories;
+            this.brands = brands;
+            this.containing = containing;
+            this.mayContain = mayContain;
+        }
+
+        /**
+         * @param sorted The articles, ordered by name and id by the database.
+         */
+        static Snapshot build(List<DabasItemIndexEntry> sorted) {
+            long[] ids = new long[sorted.size()];
+            List<List<List<String>>> tokens = new ArrayList<>(sorted.size());
+            long[] totalLengths = new long[FIELD_WEIGHTS.length];
+            Map<String, PostingBuilder> categoryBuilders = new HashMap<>();
+            Map<String, PostingBuilder> brandBuilders = new HashMap<>();
+            Map<Allergen, PostingBuilder> containingBuilders = new EnumMap<>(Allergen.class);
+            Map<Allergen, PostingBuilder> mayContainBuilders = new EnumMap<>(Allergen.class);
+            for (int position = 0; position < sorted.size(); position++) {
+                DabasItemIndexEntry entry = sorted.get(position);
+                ids[position] = entry.id();
+                addFacetValue(categoryBuilders, entry.category(), position);
+                addFacetValue(brandBuilders, entry.brand(), position);
+                addAllergens(containingBuilders, mayContainBuilders, entry.allergens(), position);
+                List<List<String>> fieldTokens = List.of(SearchText.tokens(entry.name()), SearchText.tokens(entry.brand()),
+                        SearchText.words(entry.category()), SearchText.words(entry.ingredients()));
+                for (int field = 0; field < FIELD_WEIGHTS.length; field++) {
+                    totalLengths[field] += fieldTokens.get(field).size();
+                }
+                tokens.add(fieldTokens);
+            }
+
+            float[] averageLengths = new float[FIELD_WEIGHTS.length];
+            for (int field = 0; field < FIELD_WEIGHTS.length; field++) {
+                averageLengths[field] = Math.max(1f, (float) totalLengths[field] / Math.max(1, sorted.size()));
+            }
+            Map<String, PostingBuilder> builders = new TreeMap<>();
+            for (int position = 0; position < tokens.size(); position++) {
+                List<List<String>> fieldTokens = tokens.get(position);
+                for (int field = 0; field < FIELD_WEIGHTS.length; field++) {
+                    List<String> values = fieldTokens.get(field);
+                    float weight = FIELD_WEIGHTS[field] / (1 - B + B * values.size() / averageLengths[field]);
+                    for (String token : values) {
+                        builders.computeIfAbsent(token, key -> new PostingBuilder()).add(position, field, weight);
+                    }
+                }
+                tokens.set(position, null);
+            }
+
+            String[] terms = new String[builders.size()];
+            int[][] postings = new int[builders.size()][];
+            byte[][] fields = new byte[builders.size()][];
+            float[][] scores = new float[builders.size()][];
+            int i = 0;
+            for (Map.Entry<String, PostingBuilder> builder : builders.entrySet()) {
+                PostingBuilder posting = builder.getValue();
+                terms[i] = builder.getKey();
+                postings[i] = Arrays.copyOf(posting.positions, posting.size);
+                fields[i] = Arrays.copyOf(posting.fields, posting.size);
+                scores[i] = posting.scores(ids.length);
+                i++;
+            }
+            return new Snapshot(ids, terms, postings, fields, scores,
+                    facetBitmaps(categoryBuilders, ids.length), facetBitmaps(brandBuilders, ids.length),
+                    facetBitmaps(containingBuilders, ids.length), facetBitmaps(mayContainBuilders, ids.length));
+        }
+
+        private static void addFacetValue(Map<String, PostingBuilder> builders, String value, int position) {
+            if (value != null && !value.isBlank()) {
+                builders.computeIfAbsent(value, key -> new PostingBuilder()).add(position, 0, 0);
+            }
+        }
+
+        /**
+         * Adds the article to the allergens it declares, as stored by the {@code DabasArticleReader}: a comma
+         * separated list of allergen type codes and levels of containment. Unknown codes and levels are ignored.
+         */
+        private static void addAllergens(Map<Allergen, PostingBuilder> containing, Map<Allergen, PostingBuilder> mayContain,
+                                         String allergens, int position) {
+            if (allergens == null || allergens.isEmpty()) {
+                return;
+            }
+            for (String declaration : allergens.split(",")) {
+                int separator = declaration.indexOf(':');
+                if (separator < 0) {
+                    continue;
+                }
+                String level = declaration.substring(separator + 1);
+                Map<Allergen, PostingBuilder> builders = switch (level) {
+                    case Allergen.CONTAINS -> containing;
+                    case Allergen.MAY_CONTAIN -> mayContain;
+                    default -> null;
+                };
+                if (builders != null) {
+                    Allergen.fromCode(declaration.substring(0, separator)).ifPresent(allergen ->
+                            builders.computeIfAbsent(allergen, key -> new PostingBuilder()).add(position, 0, 0));
+                }
+            }
+        }
+
+        private static <K> Map<K, FacetBitmap> facetBitmaps(Map<K, PostingBuilder> builders, int articles) {
+            Map<K, FacetBitmap> bitmaps = new HashMap<>();
+            builders.forEach((value, builder) -> bitmaps.put(value, FacetBitmap.of(builder.positions, builder.size, articles)));
+            return bitmaps;
+        }
+
+        /**
+         * Removes the articles not having the value from the results, unless the value is null.
+         */
+        <K> void filter(Map<K, FacetBitmap> facet, K value, BitSet matches) {
+            if (value == null) {
+                return;
+            }
+            FacetBitmap bitmap = facet.get(value);
+            if (bitmap == null) {
+                matches.clear();
+            } else {
+                bitmap.retainIn(matches);
+            }
+        }
+
+        /**
+         * Removes the articles not containing every allergen of {@code contains}, and the articles containing or
+         * possibly containing any allergen of {@code without}, from the results. Null lists are ignored.
+         */
+        void filterAllergens(List<Allergen> contains, List<Allergen> without, BitSet matches) {
+            if (contains != null) {
+                for (Allergen allergen : contains) {
+                    filter(containing, allergen, matches);
+                }
+            }
+            if (without != null) {
+                for (Allergen allergen : without) {
+                    FacetBitmap bitmap = containing.get(allergen);
+                    if (bitmap != null) {
+                        bitmap.removeFrom(matches);
+                    }
+                    bitmap = mayContain.get(allergen);
+                    if (bitmap != null) {
+                        bitmap.removeFrom(matches);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Removes the articles without every word of {@code ingredients} in their ingredients, and the articles with
+         * any word of {@code without}, from the results. A word matches the ingredient tokens containing it. Null
+         * lists are ignored.
+         */
+        void filterIngredients(List<String> ingredients, List<String> without, BitSet matches) {
+            if (ingredients != null) {
+                for (String ingredient : ingredients) {
+                    for (String word : SearchText.words(ingredient)) {
+                        matches.and(ingredientMatches(word));
+                    }
+                }
+            }
+            if (without != null) {
+                for (String ingredient : without) {
+                    for (String word : SearchText.words(ingredient)) {
+                        matches.andNot(ingredientMatches(word));
+                    }
+                }
+            }
+        }
+
+        private BitSet ingredientMatches(String word) {
+            BitSet wordMatches = new BitSet(ids.length);
+            for (int i = 0; i < terms.length; i++) {
+                if (terms[i].contains(word)) {
+                    addPostings(i, INGREDIENTS_ONLY, EXACT, wordMatches, null);
+                }
+            }
+            return wordMatches;
+        }
+
+        /**
+         * Counts the results per category and brand, keeping the {@code limit} most frequent values of each.
+         */
+        DabasItemFacets facets(BitSet matches, int limit) {
+            long[] results = matches.toLongArray();
+            return new DabasItemFacets(count(categories, results, limit), count(brands, results, limit));
+        }
+
+        private static List<FacetCount> count(Map<String, FacetBitmap> facet, long[] results, int limit) {
+            List<FacetCount> counts = new ArrayList<>();
+            for (Map.Entry<String, FacetBitmap> value : facet.entrySet()) {
+                int count = value.getValue().countIn(results);
+                if (count > 0) {
+                    counts.add(new FacetCount(value.getKey(), count));
+                }
+            }
+            counts.sort(Comparator.comparingLong(FacetCount::count).reversed().thenComparing(FacetCount::value));
+            return counts.size() > limit ? List.copyOf(counts.subList(0, limit)) : counts;
+        }
+
+        /**
+         * @param fieldMask   The fields a word may match in.
+         * @param totalScores The array to add the scores of the matching articles to, or null to only match.
+         * @return The positions of the articles matching every word.
+         */
+        BitSet match(List<String> words, boolean fuzzy, byte fieldMask, float[] totalScores) {
+            BitSet result = new BitSet(ids.length);
+            result.set(0, ids.length);
+            float[] wordScores = totalScores == null ? null : new float[ids.length];
+            for (String word : words) {
+                BitSet wordMatches = new BitSet(ids.length);
+                for (int i = 0; i < terms.length; i++) {
+                    String term = terms[i];
+                    if (term.contains(word)) {
+                        float quality = term.length() == word.length() ? EXACT : term.startsWith(word) ? PREFIX : SUBSTRING;
+                        addPostings(i, fieldMask, quality, wordMatches, wordScores);
+                    }
+                }
+                if (fuzzy && maxEdits(word) > 0) {
+                    matchFuzzy(word, maxEdits(word), term -> addPostings(term, fieldMask, FUZZY, wordMatches, wordScores));
+                }
+                result.and(wordMatches);
+                if (wordScores != null) {
+                    for (int position = wordMatches.nextSetBit(0); position >= 0; position = wordMatches.nextSetBit(position + 1)) {
+                        totalScores[position] += wordScores[position];
+                        wordScores[position] = 0;
+                    }
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Marks the articles in which the term occurs in one of the fields, and keeps the best score of the word for each.
+         */
+        private void addPostings(int term, byte fieldMask, float quality, BitSet matches, float[] wordScores) {
+            int[] positions = postings[term];
+            byte[] termFields = fields[term];
+            for (int i = 0; i < positions.length; i++) {
+                if ((termFields[i] & fieldMask) != 0) {
+                    matches.set(positions[i]);
+                    if (wordScores != null) {
+                        wordScores[positions[i]] = Math.max(wordScores[positions[i]], quality * scores[term][i]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Calls the consumer with every term within {@code maxEdits} of the word. {@code rows[d]} holds the edit
+         * distances between the first {@code d} characters of the current term and every prefix of the word, so a
+         * term only computes the rows after its common prefix with the previous one. When every distance of a row
+         * exceeds {@code maxEdits}, no term with that prefix can match, and they are skipped with a binary search.
+         */
+        private void matchFuzzy(String word, int maxEdits, IntConsumer consumer) {
+            int width = word.length() + 1;
+            int[][] rows = new int[1][];
+            rows[0] = new int[width];
+            for (int j = 0; j < width; j++) {
+                rows[0][j] = j;
+            }
+            String previous = "";
+            int computed = 0;
+            int i = 0;
+            while (i < terms.length) {
+                String term = terms[i];
+                int depth = Math.min(commonPrefix(previous, term), computed);
+                if (rows.length <= term.length()) {
+                    rows = Arrays.copyOf(rows, term.length() + 1);
+                }
+                int pruned = -1;
+                for (; depth < term.length(); depth++) {
+                    int[] above = rows[depth];
+                    int[] row = rows[depth + 1] == null ? new int[width] : rows[depth + 1];
+                    row[0] = depth + 1;
+                    int min = row[0];
+                    for (int j = 1; j < width; j++) {
+                        int substitution = above[j - 1] + (word.charAt(j - 1) == term.charAt(depth) ? 0 : 1);
+                        row[j] = Math.min(substitution, Math.min(above[j], row[j - 1]) + 1);
+                        min = Math.min(min, row[j]);
+                    }
+                    rows[depth + 1] = row;
+                    if (min > maxEdits) {
+                        pruned = depth + 1;
+                        break;
+                    }
+                }
+                previous = term;
+                if (pruned >= 0) {
+                    computed = pruned;
+                    i = skipPrefix(term.substring(0, pruned), i);
+                    continue;
+                }
+                computed = term.length();
+                if (rows[term.length()][width - 1] <= maxEdits) {
+                    consumer.accept(i);
+                }
+                i++;
+            }
+        }
+
+        /**
+         * @return The first term after {@code from} that does not start with the prefix.
+         */
+        private int skipPrefix(String prefix, int from) {
+            int low = from + 1;
+            int high = terms.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (terms[middle].startsWith(prefix)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static int commonPrefix(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Selects a page of the matching articles by descending score, and by name between equal scores. Only the
+         * best {@code offset + size} articles are kept, in a min-heap whose root is the worst of them.
+         */
+        List<Long> top(BitSet matches, float[] totalScores, Pageable pageable) {
+            long wanted = Math.min(pageable.getOffset() + pageable.getPageSize(), matches.cardinality());
+            if (wanted <= pageable.getOffset()) {
+                return List.of();
+            }
+            int[] heap = new int[(int) wanted];
+            int size = 0;
+            for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1)) {
+                if (size < heap.length) {
+                    heap[size] = position;
+                    siftUp(heap, size++, totalScores);
+                } else if (isBetter(position, heap[0], totalScores)) {
+                    heap[0] = position;
+                    siftDown(heap, size, totalScores);
+                }
+            }
+            Long[] ranked = new Long[size];
+            while (size > 0) {
+                ranked[size - 1] = ids[heap[0]];
+                heap[0] = heap[--size];
+                siftDown(heap, size, totalScores);
+            }
+            return Arrays.asList(ranked).subList((int) pageable.getOffset(), ranked.length);
+        }
+
+        private static boolean isBetter(int a, int b, float[] totalScores) {
+            return totalScores[a] != totalScores[b] ? totalScores[a] > totalScores[b] : a < b;
+        }
+
+        private static void siftUp(int[] heap, int index, float[] totalScores) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!isBetter(heap[parent], heap[index], totalScores)) {
+                    return;
+                }
+                swap(heap, parent, index);
+                index = parent;
+            }
+        }
+
+        private static void siftDown(int[] heap, int size, float[] totalScores) {
+            int index = 0;
+            while (true) {
+                int worst = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && isBetter(heap[worst], heap[left], totalScores)) {
+                    worst = left;
+                }
+                if (right < size && isBetter(heap[worst], heap[right], totalScores)) {
+                    worst = right;
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(heap, index, worst);
+                index = worst;
+            }
+        }
+
+        private static void swap(int[] heap, int a, int b) {
+            int value = heap[a];
+            heap[a] = heap[b];
+            heap[b] = value;
+        }
+    }
+
+    /**
+     * Collects the ascending positions of a term with the fields it occurs in and its weighted frequency,
+     * adding up the occurrences of a term in the same article.
+     */
+    private static final class PostingBuilder {
+        private int[] positions = new int[4];
+        private byte[] fields = new byte[4];
+        private float[] frequencies = new float[4];
+        private int size;
+
+        void add(int position, int field, float weight) {
+            if (size == 0 || positions[size - 1] != position) {
+                if (size == positions.length) {
+                    positions = Arrays.copyOf(positions, size * 2);
+                    fields = Arrays.copyOf(fields, size * 2);
+                    frequencies = Arrays.copyOf(frequencies, size * 2);
+                }
+                positions[size] = position;
+                size++;
+            }
+            fields[size - 1] |= (byte) (1 << field);
+            frequencies[size - 1] += weight;
+        }
+
+        /**
+         * @return The BM25F score of the term in each article, from its document frequency and its weighted frequency.
+         */
+        float[] scores(int articles) {
+            float idf = (float) Math.log(1 + (articles - size + 0.5) / (size + 0.5));
+            float[] scores = new float[size];
+            for (int i = 0; i < size; i++) {
+                scores[i] = idf * frequencies[i] * (K1 + 1) / (K1 + frequencies[i]);
+            }
+            return scores;
+        }
+    }
+}
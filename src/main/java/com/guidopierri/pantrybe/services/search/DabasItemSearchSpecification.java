@@ -1,22 +1,44 @@
 package com.guidopierri.pantrybe.services.search;
 
+import com.guidopierri.pantrybe.models.Allergen;
 import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.DabasItemTrigram;
 import com.guidopierri.pantrybe.models.SearchParams;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
 @Getter
 @NoArgsConstructor
 public class DabasItemSearchSpecification implements Specification<DabasItem> {
     private SearchParams params;
     public static final String NAME = "name";
     public static final String BRAND = "brand";
+    public static final String CATEGORY = "category";
+    private static final String ID = "id";
+    private static final String ITEM_ID = "itemId";
+    private static final String TRIGRAM = "trigram";
+    private static final String SEARCH_TEXT = "searchText";
+    private static final String ALLERGENS = "allergens";
+    private static final String INGREDIENTS = "ingredients";
+    /**
+     * Separates the words of the free text search. A word never contains a separator, so it can only
+     * match within a single separated token of a name or brand.
+     */
+    public static final String WORD_SEPARATORS = "[\\s?!;<>()\\-_\"'´`]+";
 
     public DabasItemSearchSpecification(SearchParams params) {
         this.params = params;
@@ -24,31 +46,98 @@ public class DabasItemSearchSpecification implements Specification<DabasItem> {
 
     @Override
     public Predicate toPredicate(@NotNull Root<DabasItem> root, @NotNull CriteriaQuery<?> query, @NotNull CriteriaBuilder criteriaBuilder) {
-        if (params.getFreeTextSearch() == null || params.getFreeTextSearch().isEmpty()) {
-            return criteriaBuilder.conjunction();
+        List<Predicate> predicates = new ArrayList<>();
+        if (params.getCategory() != null) {
+            predicates.add(criteriaBuilder.equal(root.get(CATEGORY), params.getCategory()));
+        }
+        if (params.getBrand() != null) {
+            predicates.add(criteriaBuilder.equal(root.get(BRAND), params.getBrand()));
+        }
+        if (params.getFreeTextSearch() != null && !params.getFreeTextSearch().isEmpty()) {
+            predicates.add(constructNameQuery(root, query, criteriaBuilder));
         }
+        addAllergenPredicates(root, criteriaBuilder, predicates);
+        addIngredientPredicates(root, criteriaBuilder, predicates);
+        return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+    }
 
-        return constructNameQuery(root, criteriaBuilder);
+    /**
+     * Matches the allergens in the stored declarations of the article, e.g. {@code AW:CONTAINS,AM:MAY_CONTAIN}.
+     * An article without declarations contains no allergen.
+     */
+    private void addAllergenPredicates(Root<DabasItem> root, CriteriaBuilder criteriaBuilder, List<Predicate> predicates) {
+        Expression<String> allergens = criteriaBuilder.coalesce(root.get(ALLERGENS), "");
+        if (params.getContainsAllergens() != null) {
+            for (Allergen allergen : params.getContainsAllergens()) {
+                predicates.add(criteriaBuilder.like(allergens, "%" + allergen.getCode() + ":" + Allergen.CONTAINS + "%"));
+            }
+        }
+        if (params.getWithoutAllergens() != null) {
+            for (Allergen allergen : params.getWithoutAllergens()) {
+                predicates.add(criteriaBuilder.notLike(allergens, "%" + allergen.getCode() + ":" + Allergen.CONTAINS + "%"));
+                predicates.add(criteriaBuilder.notLike(allergens, "%" + allergen.getCode() + ":" + Allergen.MAY_CONTAIN + "%"));
+            }
+        }
     }
 
-    private Predicate constructNameQuery(Root<DabasItem> root, CriteriaBuilder criteriaBuilder) {
+    /**
+     * Matches the ingredients as substrings of the lowercased list of ingredients. Unlike the
+     * {@link DabasItemIndex}, which is used once it has been built, the diacritics are not folded here.
+     */
+    private void addIngredientPredicates(Root<DabasItem> root, CriteriaBuilder criteriaBuilder, List<Predicate> predicates) {
+        Expression<String> ingredients = criteriaBuilder.lower(criteriaBuilder.coalesce(root.get(INGREDIENTS), ""));
+        if (params.getIngredients() != null) {
+            for (String ingredient : params.getIngredients()) {
+                if (!ingredient.isBlank()) {
+                    predicates.add(criteriaBuilder.like(ingredients, "%" + ingredient.trim().toLowerCase(Locale.ROOT) + "%"));
+                }
+            }
+        }
+        if (params.getWithoutIngredients() != null) {
+            for (String ingredient : params.getWithoutIngredients()) {
+                if (!ingredient.isBlank()) {
+                    predicates.add(criteriaBuilder.notLike(ingredients, "%" + ingredient.trim().toLowerCase(Locale.ROOT) + "%"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Matches every word as a substring of the stored {@link SearchText} of the article, which holds the folded
+     * tokens of the name and the brand, so accents and case do not matter. The candidates are first narrowed down
+     * to the articles that have every trigram of the words in the trigram index, so the substring match only has to
+     * verify those instead of scanning the table. Words shorter than three characters are only verified.
+     * <p>
+     * Fuzzy matching is only supported by the {@link DabasItemIndex}, the words are matched exactly here.
+     */
+    private Predicate constructNameQuery(Root<DabasItem> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
         assert params.getFreeTextSearch() != null;
-        if (params.getFreeTextSearch().isEmpty()) {
+        List<String> parts = SearchText.tokens(params.getFreeTextSearch());
+        if (parts.isEmpty()) {
             return criteriaBuilder.conjunction();
         }
-        String text = params.getFreeTextSearch().toLowerCase();
-        String[] parts = text.split("[\\s?!;<>()\\-_\"'´`]+");
 
-        Predicate[] wordPredicates = new Predicate[parts.length];
+        Predicate[] wordPredicates = new Predicate[parts.size()];
         int i = 0;
         for (String part : parts) {
-            wordPredicates[i] = criteriaBuilder.or(
-                    criteriaBuilder.like(criteriaBuilder.lower(root.get(NAME)), "%" + part + "%"),
-                    criteriaBuilder.like(criteriaBuilder.lower(root.get(BRAND)), "%" + part + "%")
-            );
+            wordPredicates[i] = criteriaBuilder.like(root.get(SEARCH_TEXT), "%" + part + "%");
             i++;
         }
-        return criteriaBuilder.and(wordPredicates);
+
+        Set<Long> trigrams = new HashSet<>();
+        for (String part : parts) {
+            trigrams.addAll(Trigrams.ofWord(part));
+        }
+        if (trigrams.isEmpty()) {
+            return criteriaBuilder.and(wordPredicates);
+        }
+        Subquery<Long> candidates = query.subquery(Long.class);
+        Root<DabasItemTrigram> trigram = candidates.from(DabasItemTrigram.class);
+        candidates.select(trigram.get(ITEM_ID))
+                .where(trigram.get(TRIGRAM).in(trigrams))
+                .groupBy(trigram.get(ITEM_ID))
+                .having(criteriaBuilder.equal(criteriaBuilder.count(trigram), (long) trigrams.size()));
+        return criteriaBuilder.and(root.get(ID).in(candidates), criteriaBuilder.and(wordPredicates));
 
     }
 
@@ -0,0 +1,97 @@
+package com.guidopierri.pantrybe.services.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The positions of the articles having a facet value, e.g. a category or an allergen, in the {@link DabasItemIndex}.
+ * <p>
+ * Like the containers of a Roaring bitmap, a value held by few articles is stored as a sorted array of positions,
+ * and a value held by many as a bitmap, whichever is smaller: a bitmap takes one bit per article, an array 32 bits
+ * per position. Most brands are held by a handful of articles, so they take a few bytes instead of a bitmap of the
+ * whole catalog, while the large categories are intersected a word at a time.
+ */
+final class FacetBitmap {
+    private final int[] positions;
+    private final long[] words;
+    private final int cardinality;
+
+    private FacetBitmap(int[] positions, long[] words, int cardinality) {
+        this.positions = positions;
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * @param positions The ascending positions of the articles having the value.
+     * @param size      The number of positions.
+     * @param articles  The number of articles in the index.
+     */
+    static FacetBitmap of(int[] positions, int size, int articles) {
+        if ((long) size * Integer.SIZE < articles) {
+            return new FacetBitmap(Arrays.copyOf(positions, size), null, size);
+        }
+        long[] words = new long[(articles + Long.SIZE - 1) / Long.SIZE];
+        for (int i = 0; i < size; i++) {
+            words[positions[i] >>> 6] |= 1L << positions[i];
+        }
+        return new FacetBitmap(null, words, size);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Counts the articles having the value among the results.
+     *
+     * @param results The words of the bitmap of the results, as returned by {@link BitSet#toLongArray()}.
+     */
+    int countIn(long[] results) {
+        int count = 0;
+        if (words == null) {
+            for (int position : positions) {
+                int word = position >>> 6;
+                if (word < results.length && (results[word] & (1L << position)) != 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        int length = Math.min(words.length, results.length);
+        for (int i = 0; i < length; i++) {
+            count += Long.bitCount(words[i] & results[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Removes the articles not having the value from the results.
+     */
+    void retainIn(BitSet results) {
+        if (words != null) {
+            results.and(BitSet.valueOf(words));
+            return;
+        }
+        BitSet retained = new BitSet(results.length());
+        for (int position : positions) {
+            if (results.get(position)) {
+                retained.set(position);
+            }
+        }
+        results.and(retained);
+    }
+
+    /**
+     * Removes the articles having the value from the results.
+     */
+    void removeFrom(BitSet results) {
+        if (words != null) {
+            results.andNot(BitSet.valueOf(words));
+            return;
+        }
+        for (int position : positions) {
+            results.clear(position);
+        }
+    }
+}
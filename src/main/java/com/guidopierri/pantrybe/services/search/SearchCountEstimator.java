@@ -0,0 +1,123 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.models.Allergen;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.services.DabasCatalogChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps approximate totals of searches, so that a page can show "about N results" without running
+ * a count query on every request.
+ * <p>
+ * A total is counted in the background the first time a search is requested and whenever it is older than
+ * {@code dabas.search.count-ttl}. Until the new count is done, the previous one is returned. All totals are
+ * marked as outdated when a {@link DabasCatalogChangedEvent} is published, but kept as estimates.
+ * <p>
+ * Totals are keyed by the filters of the search, see {@link Key}, and not by how the results are ordered or paged.
+ */
+@Component
+@Slf4j
+public class SearchCountEstimator {
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("search-count-"));
+    private final Map<Key, Estimate> estimates = new ConcurrentHashMap<>();
+    private final Set<Key> refreshing = ConcurrentHashMap.newKeySet();
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    public SearchCountEstimator(@Value("${dabas.search.count-ttl:5m}") Duration ttl,
+                                @Value("${dabas.search.count-max-entries:1000}") int maxEntries) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the last known total of a search, and counts it again in the background if it is missing or outdated.
+     *
+     * @param key     Identifies the search.
+     * @param counter Counts the results of the search. It is called on a background thread.
+     * @return The last known total, or empty if the search has not been counted yet.
+     */
+    public OptionalLong estimate(Key key, LongSupplier counter) {
+        Estimate estimate = estimates.get(key);
+        if (estimate == null || estimate.isOutdated(ttlMillis)) {
+            refresh(key, counter);
+        }
+        return estimate == null ? OptionalLong.empty() : OptionalLong.of(estimate.count());
+    }
+
+    @EventListener
+    public void onCatalogChanged(DabasCatalogChangedEvent event) {
+        estimates.replaceAll((key, estimate) -> estimate.outdated());
+    }
+
+    private void refresh(Key key, LongSupplier counter) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    long count = counter.getAsLong();
+                    if (estimates.size() >= maxEntries && !estimates.containsKey(key)) {
+                        estimates.clear();
+                    }
+                    estimates.put(key, new Estimate(count, System.currentTimeMillis()));
+                } catch (RuntimeException e) {
+                    log.warn("Unable to count the results of search '{}': {}", key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * The filters of a search that determine its total, with the free text normalized like the index.
+     */
+    public record Key(String freeText, String category, String brand, List<Allergen> containsAllergens,
+                      List<Allergen> withoutAllergens, List<String> ingredients, List<String> withoutIngredients) {
+
+        public static Key of(SearchParams search) {
+            return new Key(search.getFreeTextSearch() == null ? "" : SearchText.normalize(search.getFreeTextSearch()),
+                    search.getCategory(), search.getBrand(), copy(search.getContainsAllergens()),
+                    copy(search.getWithoutAllergens()), copy(search.getIngredients()), copy(search.getWithoutIngredients()));
+        }
+
+        private static <T> List<T> copy(List<T> values) {
+            return values == null ? null : List.copyOf(values);
+        }
+    }
+
+    private record Estimate(long count, long countedAt) {
+        boolean isOutdated(long ttlMillis) {
+            return System.currentTimeMillis() - countedAt > ttlMillis;
+        }
+
+        Estimate outdated() {
+            return new Estimate(count, 0);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.exceptions.DataValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last article of a page in a keyset paginated search, which is ordered by name and id.
+ * <p>
+ * The cursor is handed to the client as an opaque, URL safe string and passed back to fetch the next page.
+ *
+ * @param name The name of the last article of the page, or null if it has none.
+ * @param id   The id of the last article of the page.
+ */
+public record SearchCursor(String name, long id) {
+
+    /**
+     * @return The cursor as an opaque string.
+     */
+    public String encode() {
+        String value = name == null ? String.valueOf(id) : id + ":" + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor A cursor returned by {@link #encode()}.
+     * @return The decoded cursor.
+     * @throws DataValidationException If the cursor is not valid.
+     */
+    public static SearchCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+            if (separator < 0) {
+                return new SearchCursor(null, Long.parseLong(value));
+            }
+            return new SearchCursor(value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new DataValidationException("Invalid search cursor: " + cursor, e);
+        }
+    }
+}
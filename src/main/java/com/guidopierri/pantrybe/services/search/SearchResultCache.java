@@ -0,0 +1,188 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.services.DabasCatalogChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of DABAS searches: the hit list of a search, the summaries of its hits, and the hydrated
+ * pages of it.
+ * <p>
+ * Searches are keyed by their text as given, which the callers normalize with {@link SearchText#query}, the text
+ * they also send to DABAS. Pages are keyed by the text, the page number and the page size.
+ * <p>
+ * All the entries share a budget of {@code dabas.search.cache.max-size}, measured with an estimate of
+ * their heap size, and the least recently used entries are evicted when it is exceeded. Entries expire
+ * {@code dabas.search.cache.ttl} after they were loaded. The cache is cleared when a
+ * {@link DabasCatalogChangedEvent} is published, and results loaded while it was being cleared are not cached.
+ */
+@Component
+@Slf4j
+public class SearchResultCache {
+    private static final long ENTRY_OVERHEAD = 96;
+    private static final long STRING_OVERHEAD = 48;
+
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxWeight;
+    private final long ttlMillis;
+    private long weight;
+    private long generation;
+
+    public SearchResultCache(@Value("${dabas.search.cache.max-size:32MB}") DataSize maxSize,
+                             @Value("${dabas.search.cache.ttl:10m}") Duration ttl) {
+        this.maxWeight = maxSize.toBytes();
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /**
+     * Returns the cached GTINs of the hits of a search, or loads and caches them.
+     *
+     * @param searchParameter The text of the search, see {@link SearchText#query}.
+     * @param loader          Loads the GTINs of the hits. It is called without holding the cache.
+     * @return The GTINs of the hits.
+     */
+    public List<String> hits(String searchParameter, Supplier<List<String>> loader) {
+        return get(new HitsKey(searchParameter), loader, SearchResultCache::weighHits);
+    }
+
+    /**
+     * Returns the cached summaries of every hit of a search, whether or not the articles are stored locally, or loads
+     * and caches them.
+     *
+     * @param searchParameter The text of the search, see {@link SearchText#query}.
+     * @param loader          Loads the summaries. It is called without holding the cache.
+     * @return The summaries of the hits.
+     */
+    public List<DabasItemResponse> summaries(String searchParameter, Supplier<List<DabasItemResponse>> loader) {
+        return get(new SummariesKey(searchParameter), loader, SearchResultCache::weighItems);
+    }
+
+    /**
+     * Returns a cached page of a search, or loads and caches it.
+     *
+     * @param searchParameter The text of the search, see {@link SearchText#query}.
+     * @param page            The page number.
+     * @param size            The page size.
+     * @param loader          Loads the page. It is called without holding the cache.
+     * @return The page.
+     */
+    public Page<DabasItemResponse> page(String searchParameter, int page, int size, Supplier<Page<DabasItemResponse>> loader) {
+        return get(new PageKey(searchParameter, page, size), loader, SearchResultCache::weighPage);
+    }
+
+    @EventListener
+    public void onCatalogChanged(DabasCatalogChangedEvent event) {
+        invalidateAll();
+        log.debug("Cleared cached searches after a change by {}", event.source());
+    }
+
+    /**
+     * Removes every entry, and keeps the loads in progress from being cached.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+        generation++;
+    }
+
+    /**
+     * @return The estimated heap size of the cached entries, in bytes.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V get(Object key, Supplier<V> loader, Weigher<V> weigher) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.loadedAt() <= ttlMillis) {
+                    return (V) entry.value();
+                }
+                remove(key);
+            }
+            loadGeneration = generation;
+        }
+        V value = loader.get();
+        put(key, value, ENTRY_OVERHEAD + weigher.weigh(value), loadGeneration);
+        return value;
+    }
+
+    private synchronized void put(Object key, Object value, long entryWeight, long loadGeneration) {
+        if (loadGeneration != generation || entryWeight > maxWeight) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(value, entryWeight, System.currentTimeMillis()));
+        weight += entryWeight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().weight();
+            eldest.remove();
+        }
+    }
+
+    private void remove(Object key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+
+    private static long weighHits(List<String> gtins) {
+        long total = 16L + 8L * gtins.size();
+        for (String gtin : gtins) {
+            total += weigh(gtin);
+        }
+        return total;
+    }
+
+    private static long weighPage(Page<DabasItemResponse> page) {
+        return 48L + weighItems(page.getContent());
+    }
+
+    private static long weighItems(List<DabasItemResponse> items) {
+        long total = 16L + 8L * items.size();
+        for (DabasItemResponse item : items) {
+            total += 56 + weigh(item.gtin()) + weigh(item.name()) + weigh(item.brand()) + weigh(item.image())
+                    + weigh(item.category()) + weigh(item.size()) + weigh(item.ingredients())
+                    + weigh(item.productClassifications()) + weigh(item.bruteWeight()) + weigh(item.drainedWeight())
+                    + weigh(item.allergens());
+        }
+        return total;
+    }
+
+    private static long weigh(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+
+    @FunctionalInterface
+    private interface Weigher<V> {
+        long weigh(V value);
+    }
+
+    private record HitsKey(String search) {
+    }
+
+    private record SummariesKey(String search) {
+    }
+
+    private record PageKey(String search, int page, int size) {
+    }
+
+    private record Entry(Object value, long weight, long loadedAt) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.guidopierri.pantrybe.services.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The normalization shared by everything that stores or matches searchable text of the DABAS articles.
+ * <p>
+ * Text is lowercased and its diacritics are folded, so "Mjölk", "MJÖLK" and "mjolk" are the same, and then split
+ * into tokens with the separators of the free text search. The same pipeline is applied to the names and brands
+ * when they are stored or indexed and to the words of a search, so they always compare equal.
+ */
+public final class SearchText {
+    private static final Pattern WORD_SEPARATORS = Pattern.compile(DabasItemSearchSpecification.WORD_SEPARATORS);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchText() {
+    }
+
+    /**
+     * @param text A text, e.g. a name or a search word.
+     * @return The text lowercased and without diacritics.
+     */
+    public static String fold(String text) {
+        String lowercased = text.toLowerCase(Locale.ROOT);
+        if (isAscii(lowercased)) {
+            return lowercased;
+        }
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lowercased, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * @param text A text, e.g. a search.
+     * @return The folded text, trimmed and with its whitespace collapsed.
+     */
+    public static String normalize(String text) {
+        return fold(query(text));
+    }
+
+    /**
+     * The text of a DABAS search, as it is sent to DABAS and cached. Unlike {@link #normalize}, the diacritics are
+     * kept, since DABAS matches "mål" and "mal" differently.
+     *
+     * @param text A search.
+     * @return The text lowercased, trimmed and with its whitespace collapsed.
+     */
+    public static String query(String text) {
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param texts The texts to split, e.g. the name and the brand of an article. Null texts are ignored.
+     * @return The non-empty folded tokens of the texts, in order.
+     */
+    public static List<String> tokens(String... texts) {
+        List<String> tokens = new ArrayList<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (String token : WORD_SEPARATORS.split(fold(text))) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits prose, e.g. a list of ingredients, into words. Unlike {@link #tokens}, punctuation also separates
+     * words, so "mjölk," and "(mjölk)" are both the word "mjolk".
+     *
+     * @param text The text to split, or null.
+     * @return The non-empty folded words of the text, in order.
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : NON_WORD.split(fold(text))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The stored search text of an article: the folded tokens of its name and brand separated by spaces.
+     * A search word never contains a space, so it is a substring of a token of the name or the brand exactly
+     * when it is a substring of the search text.
+     *
+     * @param name  The name of the article.
+     * @param brand The brand of the article.
+     * @return The search text of the article.
+     */
+    public static String of(String name, String brand) {
+        return String.join(" ", tokens(name, brand));
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
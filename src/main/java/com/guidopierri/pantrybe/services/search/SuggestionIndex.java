@@ -0,0 +1,289 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.dtos.DabasItemSearchEntry;
+import com.guidopierri.pantrybe.dtos.ItemNameCount;
+import com.guidopierri.pantrybe.dtos.responses.SuggestionResponse;
+import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.repositories.ItemRepository;
+import com.guidopierri.pantrybe.services.DabasCatalogChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * In-memory prefix index over the names and brands of the stored DABAS articles, used to suggest completions
+ * while a search is being typed.
+ * <p>
+ * Every distinct name and brand is a suggestion, and its popularity is the number of articles carrying it plus
+ * the number of pantry items with the same name. A suggestion is found by the prefix of any of its words, so
+ * "mjol" suggests "Lätt mjölk" as well as "Mjölk", with the folding of {@link SearchText#normalize}.
+ * <p>
+ * The index is a flattened trie: the word suffixes of every suggestion, sorted, so the suffixes starting with a
+ * prefix are a range of the array found with two binary searches. A segment tree over the popularity of the
+ * suffixes returns the most popular suggestions of the range without scanning it. The suffixes are stored as
+ * offsets into the folded suggestions, so no substring is copied.
+ * <p>
+ * The index is built when the application is ready and rebuilt whenever a {@link DabasCatalogChangedEvent} is
+ * published. A rebuild creates a new snapshot and swaps it in, so suggestions are never blocked by it.
+ */
+@Component
+@Slf4j
+public class SuggestionIndex {
+    private final DabasItemRepository dabasItemRepository;
+    private final ItemRepository itemRepository;
+    private volatile Snapshot snapshot = Snapshot.build(Map.of());
+
+    public SuggestionIndex(DabasItemRepository dabasItemRepository, ItemRepository itemRepository) {
+        this.dabasItemRepository = dabasItemRepository;
+        this.itemRepository = itemRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onCatalogChanged(DabasCatalogChangedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index from the database. Suggestions keep using the previous snapshot until the new one is ready.
+     */
+    public synchronized void rebuild() {
+        long startTime = System.currentTimeMillis();
+        try {
+            Map<String, Candidate> candidates = new HashMap<>();
+            for (DabasItemSearchEntry entry : dabasItemRepository.findAllSearchEntries()) {
+                addCandidate(candidates, entry.name(), 1);
+                addCandidate(candidates, entry.brand(), 1);
+            }
+            for (ItemNameCount itemName : itemRepository.countByName()) {
+                Candidate candidate = candidates.get(SearchText.normalize(itemName.name()));
+                if (candidate != null) {
+                    candidate.popularity += itemName.count();
+                }
+            }
+            snapshot = Snapshot.build(candidates);
+            log.info("Built DABAS suggestion index of {} suggestions and {} prefixes in {} ms",
+                    snapshot.texts.length, snapshot.suggestions.length, System.currentTimeMillis() - startTime);
+        } catch (RuntimeException e) {
+            log.error("Unable to build the DABAS suggestion index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Suggests the most popular names and brands having a word that starts with the prefix.
+     *
+     * @param prefix The text typed so far.
+     * @param limit  The maximum number of suggestions.
+     * @return The suggestions, the most popular first.
+     */
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        if (prefix == null || limit <= 0) {
+            return List.of();
+        }
+        String folded = SearchText.normalize(prefix);
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        return snapshot.suggest(folded, limit);
+    }
+
+    private static void addCandidate(Map<String, Candidate> candidates, String text, long popularity) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        candidates.computeIfAbsent(SearchText.normalize(text), key -> new Candidate(text.trim())).popularity += popularity;
+    }
+
+    /**
+     * A suggestion being collected, with the text of the first article carrying it.
+     */
+    private static final class Candidate {
+        private final String text;
+        private long popularity;
+
+        Candidate(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * An immutable state of the index.
+     */
+    private static final class Snapshot {
+        /**
+         * The text of each suggestion, as shown to the user.
+         */
+        private final String[] texts;
+        /**
+         * The folded text of each suggestion, which the suffixes point into.
+         */
+        private final String[] folded;
+        private final long[] popularity;
+        /**
+         * The suggestion and the offset into its folded text of each suffix, in the order of the suffixes.
+         */
+        private final int[] suggestions;
+        private final int[] offsets;
+        /**
+         * A segment tree of the suffix with the most popular suggestion of each range, with the leaves at
+         * {@code suggestions.length}.
+         */
+        private final int[] tree;
+
+        private Snapshot(String[] texts, String[] folded, long[] popularity, int[] suggestions, int[] offsets) {
+            this.texts = texts;
+            this.folded = folded;
+            this.popularity = popularity;
+            this.suggestions = suggestions;
+            this.offsets = offsets;
+            int size = suggestions.length;
+            this.tree = new int[2 * size];
+            for (int i = 0; i < size; i++) {
+                tree[size + i] = i;
+            }
+            for (int node = size - 1; node > 0; node--) {
+                tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        static Snapshot build(Map<String, Candidate> candidates) {
+            String[] texts = new String[candidates.size()];
+            String[] folded = new String[candidates.size()];
+            long[] popularity = new long[candidates.size()];
+            List<int[]> suffixes = new ArrayList<>();
+            int suggestion = 0;
+            for (Map.Entry<String, Candidate> candidate : candidates.entrySet()) {
+                String text = candidate.getKey();
+                texts[suggestion] = candidate.getValue().text;
+                folded[suggestion] = text;
+                popularity[suggestion] = candidate.getValue().popularity;
+                for (int offset = 0; offset < text.length(); offset++) {
+                    if (offset == 0 || (!Character.isLetterOrDigit(text.charAt(offset - 1)) && Character.isLetterOrDigit(text.charAt(offset)))) {
+                        suffixes.add(new int[]{suggestion, offset});
+                    }
+                }
+                suggestion++;
+            }
+            suffixes.sort((a, b) -> compareSuffixes(folded[a[0]], a[1], folded[b[0]], b[1]));
+
+            int[] suggestions = new int[suffixes.size()];
+            int[] offsets = new int[suffixes.size()];
+            for (int i = 0; i < suffixes.size(); i++) {
+                suggestions[i] = suffixes.get(i)[0];
+                offsets[i] = suffixes.get(i)[1];
+            }
+            return new Snapshot(texts, folded, popularity, suggestions, offsets);
+        }
+
+        private static int compareSuffixes(String a, int aOffset, String b, int bOffset) {
+            int length = Math.min(a.length() - aOffset, b.length() - bOffset);
+            for (int i = 0; i < length; i++) {
+                int diff = a.charAt(aOffset + i) - b.charAt(bOffset + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return (a.length() - aOffset) - (b.length() - bOffset);
+        }
+
+        List<SuggestionResponse> suggest(String prefix, int limit) {
+            int from = bound(prefix, false);
+            int to = bound(prefix, true);
+            List<SuggestionResponse> result = new ArrayList<>(Math.min(limit, to - from));
+            Set<Integer> seen = new HashSet<>();
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> better(a[2], b[2]) == a[2] ? -1 : 1);
+            pushRange(ranges, from, to);
+            while (!ranges.isEmpty() && result.size() < limit) {
+                int[] range = ranges.poll();
+                int best = range[2];
+                int suggestion = suggestions[best];
+                if (seen.add(suggestion)) {
+                    result.add(new SuggestionResponse(texts[suggestion], popularity[suggestion]));
+                }
+                pushRange(ranges, range[0], best);
+                pushRange(ranges, best + 1, range[1]);
+            }
+            return result;
+        }
+
+        private void pushRange(PriorityQueue<int[]> ranges, int from, int to) {
+            if (from < to) {
+                ranges.add(new int[]{from, to, argmax(from, to)});
+            }
+        }
+
+        /**
+         * @return The first suffix starting with the prefix or after it, or if {@code after} is set, the first
+         * suffix after the ones starting with the prefix.
+         */
+        private int bound(String prefix, boolean after) {
+            int low = 0;
+            int high = suggestions.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int comparison = comparePrefix(middle, prefix);
+                if (comparison < 0 || (after && comparison == 0)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Compares the start of a suffix with the prefix, so that every suffix starting with the prefix compares equal.
+         */
+        private int comparePrefix(int suffix, String prefix) {
+            String text = folded[suggestions[suffix]];
+            int offset = offsets[suffix];
+            int length = Math.min(text.length() - offset, prefix.length());
+            for (int i = 0; i < length; i++) {
+                int diff = text.charAt(offset + i) - prefix.charAt(i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return text.length() - offset >= prefix.length() ? 0 : -1;
+        }
+
+        /**
+         * @return The suffix with the most popular suggestion in the range.
+         */
+        private int argmax(int from, int to) {
+            int best = from;
+            for (int low = from + tree.length / 2, high = to + tree.length / 2; low < high; low >>= 1, high >>= 1) {
+                if ((low & 1) == 1) {
+                    best = better(best, tree[low++]);
+                }
+                if ((high & 1) == 1) {
+                    best = better(best, tree[--high]);
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Prefers the suffix of the more popular suggestion, then the suffix at the start of its suggestion,
+         * then the first suffix.
+         */
+        private int better(int a, int b) {
+            long popularityA = popularity[suggestions[a]];
+            long popularityB = popularity[suggestions[b]];
+            if (popularityA != popularityB) {
+                return popularityA > popularityB ? a : b;
+            }
+            if ((offsets[a] == 0) != (offsets[b] == 0)) {
+                return offsets[a] == 0 ? a : b;
+            }
+            return Math.min(a, b);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.guidopierri.pantrybe.services.search;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Trigrams used by the substring index of the DABAS articles.
+ * <p>
+ * A text is split into the folded tokens of {@link SearchText}, and every run of three characters within a token
+ * is a trigram. A search word never contains a separator, so if it is a substring of a
+ * name, every trigram of the word is also a trigram of the name. Words shorter than three characters have no
+ * trigrams and can not be narrowed down by the index.
+ * <p>
+ * A trigram is stored as a number packing its three UTF-16 characters, which compares exactly regardless of the
+ * collation of the database.
+ */
+public final class Trigrams {
+    private Trigrams() {
+    }
+
+    /**
+     * @param texts The texts to index, e.g. the name and the brand of an article. Null texts are ignored.
+     * @return The distinct trigrams of every token of the texts.
+     */
+    public static Set<Long> ofTexts(String... texts) {
+        Set<Long> trigrams = new HashSet<>();
+        for (String token : SearchText.tokens(texts)) {
+            addTrigrams(trigrams, token);
+        }
+        return trigrams;
+    }
+
+    /**
+     * @param word A folded search word without separators.
+     * @return The distinct trigrams of the word, or an empty set if it is shorter than three characters.
+     */
+    public static Set<Long> ofWord(String word) {
+        Set<Long> trigrams = new HashSet<>();
+        addTrigrams(trigrams, word);
+        return trigrams;
+    }
+
+    private static void addTrigrams(Set<Long> trigrams, String token) {
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            trigrams.add(encode(token.charAt(i), token.charAt(i + 1), token.charAt(i + 2)));
+        }
+    }
+
+    static long encode(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+}
@@ -0,0 +1,100 @@
+package com.guidopierri.pantrybe.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.models.SearchCountMode;
+import com.guidopierri.pantrybe.models.SearchOrder;
+import com.guidopierri.pantrybe.services.DabasDataService;
+import com.guidopierri.pantrybe.services.DabasSearchService;
+import com.guidopierri.pantrybe.services.ImportJobService;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.beanvalidation.MethodValidationInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DabasControllerTest {
+    private DabasDataService dabasDataService;
+    private DabasController controller;
+
+    @BeforeEach
+    void setUp() {
+        dabasDataService = mock(DabasDataService.class);
+        ProxyFactory factory = new ProxyFactory(new DabasController(dabasDataService, mock(DabasSearchService.class),
+                mock(ImportJobService.class), new ObjectMapper()));
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new MethodValidationInterceptor());
+        controller = (DabasController) factory.getProxy();
+    }
+
+    private void searchCatalogPage(int page, int size) {
+        controller.searchCatalogPage("mjolk", page, size, SearchCountMode.NONE, false, SearchOrder.NAME,
+                null, null, null, null, null, null, 0);
+    }
+
+    @Test
+    @DisplayName("A negative page of the catalog search is rejected before it reaches the service")
+    void negativePage() {
+        assertThrows(ConstraintViolationException.class, () -> searchCatalogPage(-1, 20));
+        verifyNoInteractions(dabasDataService);
+    }
+
+    @Test
+    @DisplayName("A page size below 1 is rejected by both catalog searches")
+    void emptyPageSize() {
+        assertThrows(ConstraintViolationException.class, () -> searchCatalogPage(0, 0));
+        assertThrows(ConstraintViolationException.class, () -> controller.searchCatalog("mjolk", null, -5));
+        verifyNoInteractions(dabasDataService);
+    }
+
+    @Test
+    @DisplayName("A page size above the maximum is capped")
+    void cappedPageSize() {
+        searchCatalogPage(2, 1000);
+
+        verify(dabasDataService).search(any(), eq(PageRequest.of(2, DabasDataService.MAX_PAGE_SIZE)), eq(SearchCountMode.NONE), eq(0));
+    }
+
+    @Test
+    @DisplayName("A streamed search writes every result as a line of JSON")
+    void streamsNdjson() throws IOException {
+        doAnswer(invocation -> {
+            DabasDataService.SearchResultConsumer consumer = invocation.getArgument(1);
+            consumer.accept(new DabasItemResponse("1", "Mjölk", null, null, null, null, null, null, null, null, null));
+            consumer.accept(new DabasItemResponse("2", "Ost", null, null, null, null, null, null, null, null, null));
+            return null;
+        }).when(dabasDataService).streamSearch(eq("mjolk"), any());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ResponseEntity<StreamingResponseBody> response = controller.streamProductsBySearchParameter("mjolk");
+        response.getBody().writeTo(output);
+
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"gtin\":\"1\",\"name\":\"Mjölk\""), lines[0]);
+        assertTrue(lines[1].startsWith("{\"gtin\":\"2\""), lines[1]);
+    }
+
+    @Test
+    @DisplayName("A streamed search that fails, e.g. because the client disconnected, ends the response quietly")
+    void streamStopsQuietly() throws IOException {
+        doThrow(new IOException("Broken pipe")).when(dabasDataService).streamSearch(eq("mjolk"), any());
+
+        controller.streamProductsBySearchParameter("mjolk").getBody().writeTo(new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,115 @@
+package com.guidopierri.pantrybe.repositories;
+
+import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.services.search.Trigrams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DabasItemBulkRepositoryImplTest {
+    private JdbcTemplate jdbcTemplate;
+    private DabasItemBulkRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("""
+                CREATE TABLE dabas_item (id BIGINT AUTO_INCREMENT PRIMARY KEY, gtin VARCHAR(255) NOT NULL UNIQUE,
+                name VARCHAR(255), brand VARCHAR(255), image VARCHAR(255), category VARCHAR(255), size VARCHAR(255),
+                ingredients VARCHAR(4000), product_classifications VARCHAR(255), brute_weight VARCHAR(255),
+                drained_weight VARCHAR(255), last_modified VARCHAR(255), allergens VARCHAR(255), search_text VARCHAR(1000))
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE dabas_item_trigram (trigram BIGINT NOT NULL,
+                item_id BIGINT NOT NULL REFERENCES dabas_item (id) ON DELETE CASCADE, PRIMARY KEY (trigram, item_id))
+                """);
+        repository = new DabasItemBulkRepositoryImpl(jdbcTemplate, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private static DabasItem item(String gtin, String name, String lastModified) {
+        DabasItem item = new DabasItem();
+        item.setGtin(gtin);
+        item.setName(name);
+        item.setBrand("Arla");
+        item.setLastModified(lastModified);
+        return item;
+    }
+
+    private long countTrigrams(String gtin) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dabas_item_trigram t JOIN dabas_item d ON d.id = t.item_id WHERE d.gtin = ?",
+                Long.class, gtin);
+    }
+
+    @Test
+    @DisplayName("New articles are inserted in chunks together with their search text and trigrams")
+    void insertsNewItems() {
+        List<DabasItem> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(item("gtin-" + i, "Mjölk " + i, "2024-01-01"));
+        }
+
+        assertEquals(5, repository.upsertAll(items));
+
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dabas_item", Long.class));
+        assertEquals("mjolk 0 arla", jdbcTemplate.queryForObject("SELECT search_text FROM dabas_item WHERE gtin = 'gtin-0'", String.class));
+        assertTrue(countTrigrams("gtin-4") > 0);
+    }
+
+    @Test
+    @DisplayName("An existing article is updated in place and its trigrams are replaced")
+    void updatesExistingItem() {
+        repository.upsertAll(List.of(item("1", "Mjölk", "2024-01-01")));
+        long id = jdbcTemplate.queryForObject("SELECT id FROM dabas_item WHERE gtin = '1'", Long.class);
+
+        repository.upsertAll(List.of(item("1", "Havredryck", "2024-02-01")));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT id, name, last_modified FROM dabas_item WHERE gtin = '1'");
+        assertEquals(id, ((Number) row.get("ID")).longValue());
+        assertEquals("Havredryck", row.get("NAME"));
+        assertEquals("2024-02-01", row.get("LAST_MODIFIED"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dabas_item", Long.class));
+        assertEquals(Trigrams.ofTexts("Havredryck", "Arla").size(), countTrigrams("1"));
+    }
+
+    @Test
+    @DisplayName("Articles without a GTIN are skipped and only the last article with the same GTIN is written")
+    void skipsMissingAndDuplicateGtins() {
+        int written = repository.upsertAll(List.of(item(null, "Okänd", null), item("1", "Mjölk", "2024-01-01"),
+                item("1", "Lätt mjölk", "2024-02-01")));
+
+        assertEquals(1, written);
+        assertEquals(List.of("Lätt mjölk"), jdbcTemplate.queryForList("SELECT name FROM dabas_item", String.class));
+    }
+
+    @Test
+    @DisplayName("Nothing is sent to the database when no article has a GTIN")
+    void emptyUpsert() {
+        assertEquals(0, repository.upsertAll(List.of(item(null, "Okänd", null))));
+        assertEquals(0, repository.upsertAll(List.of()));
+    }
+
+    @Test
+    @DisplayName("SQL Server upserts with a locking MERGE and other databases are rejected")
+    void upsertSqlPerDatabase() {
+        String sql = DabasItemBulkRepositoryImpl.buildUpsertSql("Microsoft SQL Server");
+
+        assertTrue(sql.startsWith("MERGE INTO dabas_item WITH (HOLDLOCK)"));
+        assertTrue(sql.contains("WHEN MATCHED THEN UPDATE SET name = source.name"));
+        assertFalse(sql.contains("SET gtin"), "The GTIN is the key of the MERGE");
+        assertThrows(IllegalStateException.class, () -> DabasItemBulkRepositoryImpl.buildUpsertSql("PostgreSQL"));
+    }
+}
@@ -0,0 +1,210 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.config.EntityMapper;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.dtos.responses.ImportSummary;
+import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.ImportMode;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.services.search.DabasItemSearchSpecification;
+import com.guidopierri.pantrybe.services.search.SearchResultCache;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the import and the search against a {@link StubDabasServer}.
+ * <p>
+ * The benchmark is not part of the regular test run. Run it with
+ * {@code mvn test -Dtest=DabasBenchmarkIT}, optionally tuning it with the system properties
+ * {@code benchmark.catalog-size}, {@code benchmark.latency-ms}, {@code benchmark.error-rate},
+ * {@code benchmark.import-runs} and {@code benchmark.search-iterations}.
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class DabasBenchmarkIT {
+    private static final Logger log = LoggerFactory.getLogger(DabasBenchmarkIT.class);
+    private static final String[] SEARCH_TERMS = {"Mjölk", "Ost", "Kaffe", "Pasta", "Tomat", "Laktosfri",
+            "Ekologisk", "Lax", "Juice", "Fullkorn"};
+    private static final StubDabasServer server = startServer();
+
+    @Autowired
+    private DabasImportService dabasImportService;
+    @Autowired
+    private DabasDataService dabasDataService;
+    @Autowired
+    private DabasItemRepository dabasItemRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private SearchResultCache searchResultCache;
+    @Autowired
+    private EntityMapper entityMapper;
+
+    @DynamicPropertySource
+    static void dabasProperties(DynamicPropertyRegistry registry) {
+        registry.add("dabas-api-url", server::getBaseUrl);
+        registry.add("dabas.client.calls.article.max-rate", () -> 10_000);
+        registry.add("dabas.client.calls.article.initial-rate", () -> 1_000);
+        registry.add("dabas.client.calls.article.burst", () -> 1_000);
+        registry.add("dabas.client.calls.base-search.max-rate", () -> 10_000);
+        registry.add("dabas.client.calls.base-search.initial-rate", () -> 1_000);
+        registry.add("dabas.client.calls.base-search.burst", () -> 1_000);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Import throughput against the stub DABAS server")
+    void importThroughput() throws Exception {
+        int runs = Integer.getInteger("benchmark.import-runs", 3);
+        long[] elapsedMillis = new long[runs];
+        double[] articlesPerSecond = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            dabasItemRepository.deleteAllInBatch();
+            clearCaches();
+            long requestsBefore = server.getRequests();
+
+            ImportSummary summary = dabasImportService.importArticlesGtin(ImportMode.FULL);
+
+            elapsedMillis[i] = summary.elapsedMillis();
+            articlesPerSecond[i] = summary.articlesPerSecond();
+            log.info("Import run {} of {}: {} requests, {}", i + 1, runs, server.getRequests() - requestsBefore, summary);
+            assertEquals(server.getCatalogSize(), summary.listed());
+            assertTrue(summary.written() > 0, "The import should write articles");
+        }
+        log.info("Import of {} articles over {} runs: {} articles/sec (median), elapsed p50={} ms, max={} ms",
+                server.getCatalogSize(), runs,
+                String.format("%.1f", median(articlesPerSecond)),
+                percentile(elapsedMillis, 0.5), percentile(elapsedMillis, 1.0));
+    }
+
+    @Test
+    @DisplayName("searchToPageable latency against the stub DABAS server")
+    void searchLatency() throws Exception {
+        if (dabasItemRepository.count() < server.getCatalogSize()) {
+            dabasImportService.importArticlesGtin(ImportMode.FULL);
+        }
+        int iterations = Integer.getInteger("benchmark.search-iterations", 200);
+        int warmup = Math.max(1, iterations / 10);
+        long[] latencyNanos = new long[iterations];
+        for (int i = -warmup; i < iterations; i++) {
+            String term = SEARCH_TERMS[Math.floorMod(i, SEARCH_TERMS.length)];
+            clearCaches();
+            long startTime = System.nanoTime();
+            Page<DabasItemResponse> page = dabasDataService.searchToPageable(term, 0, 10);
+            long duration = System.nanoTime() - startTime;
+            assertFalse(page.isEmpty(), "The search for " + term + " should find articles");
+            if (i >= 0) {
+                latencyNanos[i] = duration;
+            }
+        }
+        log.info("searchToPageable over {} searches: {} searches/sec, p50={} ms, p90={} ms, p99={} ms, max={} ms",
+                iterations,
+                String.format("%.1f", iterations * TimeUnit.SECONDS.toNanos(1) / (double) Arrays.stream(latencyNanos).sum()),
+                millis(percentile(latencyNanos, 0.5)), millis(percentile(latencyNanos, 0.9)),
+                millis(percentile(latencyNanos, 0.99)), millis(percentile(latencyNanos, 1.0)));
+    }
+
+    @Test
+    @DisplayName("Ordered projection against ids then entities for a page of the catalog")
+    void projectionLatency() throws Exception {
+        if (dabasItemRepository.count() < server.getCatalogSize()) {
+            dabasImportService.importArticlesGtin(ImportMode.FULL);
+        }
+        int iterations = Integer.getInteger("benchmark.search-iterations", 200);
+        int warmup = Math.max(1, iterations / 10);
+        long[] twoStepNanos = new long[iterations];
+        long[] projectionNanos = new long[iterations];
+        for (int i = -warmup; i < iterations; i++) {
+            SearchParams search = new SearchParams();
+            search.setFreeTextSearch(SEARCH_TERMS[Math.floorMod(i, SEARCH_TERMS.length)]);
+            DabasItemSearchSpecification specification = new DabasItemSearchSpecification(search);
+            PageRequest pageable = PageRequest.of(Math.floorMod(i, 3), 20);
+
+            long startTime = System.nanoTime();
+            List<Long> ids = dabasDataService.findIdSliceBySpecification(specification, pageable, DabasItem.class).getContent();
+            Map<Long, DabasItem> itemsById = dabasItemRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(DabasItem::getId, item -> item));
+            List<DabasItemResponse> twoStep = entityMapper.convertListOfEmployeeToListOfEmployeeResponse(
+                    ids.stream().map(itemsById::get).toList());
+            long twoStepDuration = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            List<DabasItemResponse> projection = dabasDataService.findResponseSliceBySpecification(specification, pageable).getContent();
+            long projectionDuration = System.nanoTime() - startTime;
+
+            assertEquals(twoStep.size(), projection.size(), "Both queries should fetch the same page");
+            if (i >= 0) {
+                twoStepNanos[i] = twoStepDuration;
+                projectionNanos[i] = projectionDuration;
+            }
+        }
+        log.info("Ids then entities over {} pages: p50={} ms, p90={} ms, p99={} ms", iterations,
+                millis(percentile(twoStepNanos, 0.5)), millis(percentile(twoStepNanos, 0.9)), millis(percentile(twoStepNanos, 0.99)));
+        log.info("Ordered projection over {} pages: p50={} ms, p90={} ms, p99={} ms", iterations,
+                millis(percentile(projectionNanos, 0.5)), millis(percentile(projectionNanos, 0.9)), millis(percentile(projectionNanos, 0.99)));
+    }
+
+    private void clearCaches() {
+        cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .forEach(cache -> cache.clear());
+        searchResultCache.invalidateAll();
+    }
+
+    private static StubDabasServer startServer() {
+        try {
+            return new StubDabasServer(
+                    Integer.getInteger("benchmark.catalog-size", 2_000),
+                    Duration.ofMillis(Long.getLong("benchmark.latency-ms", 20)),
+                    Double.parseDouble(System.getProperty("benchmark.error-rate", "0.01")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long percentile(long[] values, double percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,176 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.exceptions.DabasException;
+import com.guidopierri.pantrybe.services.client.DabasCallType;
+import com.guidopierri.pantrybe.services.client.DabasClientProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DabasClientTest {
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpServer server;
+    private DabasClient dabasClient;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/article";
+
+        DabasClientProperties.CallPolicy policy = new DabasClientProperties.CallPolicy();
+        policy.setMaxAttempts(3);
+        policy.setInitialBackoff(Duration.ofMillis(1));
+        policy.setMaxBackoff(Duration.ofSeconds(2));
+        policy.setInitialRate(1000);
+        policy.setMaxRate(1000);
+        DabasClientProperties properties = new DabasClientProperties();
+        properties.getCalls().put(DabasCallType.ARTICLE, policy);
+        dabasClient = new DabasClient(meterRegistry, properties, 2, Duration.ofSeconds(1), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dabasClient.shutdown();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Reply reply = replies.isEmpty() ? new Reply(200, null, "{}", false) : replies.poll();
+        byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+        if (reply.gzip()) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        if (reply.retryAfter() != null) {
+            exchange.getResponseHeaders().set("Retry-After", reply.retryAfter());
+        }
+        exchange.sendResponseHeaders(reply.status(), body.length == 0 ? -1 : body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private double retries() {
+        return meterRegistry.find("dabas.client.retries").counters().stream().mapToDouble(counter -> counter.count()).sum();
+    }
+
+    @Test
+    @DisplayName("A throttled or failing call is retried until it succeeds")
+    void retriesUntilSuccess() throws Exception {
+        replies.add(new Reply(503, null, "", false));
+        replies.add(new Reply(429, null, "", false));
+        replies.add(new Reply(200, null, "{\"GTIN\": \"1\"}", false));
+
+        Optional<String> body = dabasClient.get(url, DabasCallType.ARTICLE);
+
+        assertEquals(Optional.of("{\"GTIN\": \"1\"}"), body);
+        assertEquals(3, requests.get());
+        assertEquals(2, retries());
+    }
+
+    @Test
+    @DisplayName("A call that keeps failing is given up after the maximum number of attempts")
+    void givesUpAfterMaxAttempts() {
+        for (int i = 0; i < 5; i++) {
+            replies.add(new Reply(503, null, "", false));
+        }
+
+        assertThrows(DabasException.class, () -> dabasClient.get(url, DabasCallType.ARTICLE));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    @DisplayName("The delay requested by a Retry-After header is waited for")
+    void honoursRetryAfter() throws Exception {
+        replies.add(new Reply(429, "1", "", false));
+        long startTime = System.nanoTime();
+
+        dabasClient.get(url, DabasCallType.ARTICLE);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startTime).toMillis() >= 1000);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("A Retry-After delay is capped by the maximum backoff and an HTTP date falls back to the backoff")
+    void capsRetryAfter() throws Exception {
+        replies.add(new Reply(503, "3600", "", false));
+        replies.add(new Reply(503, "Wed, 21 Oct 2015 07:28:00 GMT", "", false));
+        long startTime = System.nanoTime();
+
+        dabasClient.get(url, DabasCallType.ARTICLE);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startTime).toMillis() < 4000);
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    @DisplayName("A missing article is not retried")
+    void notFound() throws Exception {
+        replies.add(new Reply(404, null, "", false));
+
+        assertEquals(Optional.empty(), dabasClient.get(url, DabasCallType.ARTICLE));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("Other client errors fail without a retry")
+    void clientError() {
+        replies.add(new Reply(400, null, "", false));
+
+        assertThrows(DabasException.class, () -> dabasClient.get(url, DabasCallType.ARTICLE));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("A gzip compressed body is decompressed")
+    void decodesGzip() throws Exception {
+        replies.add(new Reply(200, null, "{\"Produktnamn\": \"Mjölk\"}", true));
+
+        assertEquals(Optional.of("{\"Produktnamn\": \"Mjölk\"}"), dabasClient.get(url, DabasCallType.ARTICLE));
+    }
+
+    @Test
+    @DisplayName("Every request is timed by call type and status")
+    void recordsRequestMetrics() throws Exception {
+        replies.add(new Reply(404, null, "", false));
+
+        dabasClient.get(url, DabasCallType.ARTICLE);
+        dabasClient.get(url, DabasCallType.ARTICLE);
+
+        assertEquals(1, meterRegistry.get("dabas.client.requests").tags("call", "ARTICLE", "status", "404").timer().count());
+        assertEquals(1, meterRegistry.get("dabas.client.requests").tags("call", "ARTICLE", "status", "200").timer().count());
+        assertEquals(0, meterRegistry.get("dabas.client.requests.in.flight").gauge().value());
+    }
+
+    private record Reply(int status, String retryAfter, String body, boolean gzip) {
+    }
+}
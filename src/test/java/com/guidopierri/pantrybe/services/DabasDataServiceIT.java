@@ -0,0 +1,101 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.dtos.responses.DabasItemCursorPage;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.services.search.DabasItemSearchSpecification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class DabasDataServiceIT {
+    @Autowired
+    private DabasDataService dabasDataService;
+    @Autowired
+    private DabasItemRepository dabasItemRepository;
+
+    @BeforeEach
+    void setUp() {
+        dabasItemRepository.deleteAllInBatch();
+        dabasItemRepository.upsertAll(List.of(
+                item("4", "Mjölk", "Skånemejerier", "AM:CONTAINS"),
+                item("1", "Ost", "Arla", null),
+                item("3", "Havredryck", "Oatly", null),
+                item("2", "Mjölk", "Arla", "AM:CONTAINS")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dabasItemRepository.deleteAllInBatch();
+    }
+
+    private static DabasItem item(String gtin, String name, String brand, String allergens) {
+        DabasItem item = new DabasItem();
+        item.setGtin(gtin);
+        item.setName(name);
+        item.setBrand(brand);
+        item.setCategory("Mejeri");
+        item.setSize("1 l");
+        item.setAllergens(allergens);
+        return item;
+    }
+
+    private static List<String> gtins(List<DabasItemResponse> items) {
+        return items.stream().map(DabasItemResponse::gtin).toList();
+    }
+
+    private Slice<DabasItemResponse> slice(SearchParams search, int page, int size) {
+        return dabasDataService.findResponseSliceBySpecification(new DabasItemSearchSpecification(search), PageRequest.of(page, size));
+    }
+
+    @Test
+    @DisplayName("The projection fetches the pages of the catalog ordered by name and id")
+    void projectsOrderedPages() {
+        Slice<DabasItemResponse> first = slice(new SearchParams(), 0, 3);
+        Slice<DabasItemResponse> last = slice(new SearchParams(), 1, 3);
+
+        assertEquals(List.of("3", "4", "2"), gtins(first.getContent()));
+        assertTrue(first.hasNext());
+        assertEquals(List.of("1"), gtins(last.getContent()));
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    @DisplayName("The projection fills every field of the response and applies the search")
+    void projectsResponses() {
+        SearchParams search = new SearchParams();
+        search.setFreeTextSearch("mjolk");
+        search.setBrand("Arla");
+
+        Slice<DabasItemResponse> slice = slice(search, 0, 10);
+
+        assertEquals(List.of(new DabasItemResponse("2", "Mjölk", "Arla", null, "Mejeri", "1 l", null, null, null, null,
+                "AM:CONTAINS")), slice.getContent());
+        assertFalse(slice.hasNext());
+    }
+
+    @Test
+    @DisplayName("The articles of a page of ids are fetched in the order of the ids")
+    void keepsTheOrderOfTheIds() {
+        DabasItemCursorPage first = dabasDataService.search(new SearchParams(), null, 2);
+        DabasItemCursorPage next = dabasDataService.search(new SearchParams(), first.nextCursor(), 2);
+
+        assertEquals(List.of("3", "4"), gtins(first.content()));
+        assertEquals(List.of("2", "1"), gtins(next.content()));
+        assertNull(next.nextCursor());
+    }
+}
@@ -0,0 +1,286 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.config.EntityMapper;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemSearchPage;
+import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.SearchCountMode;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.services.client.DabasCallType;
+import com.guidopierri.pantrybe.services.search.DabasItemIndex;
+import com.guidopierri.pantrybe.services.search.SearchCountEstimator;
+import com.guidopierri.pantrybe.services.search.SearchResultCache;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DabasDataServiceTest {
+    /**
+     * The hits of the DABAS search, in its order, with a duplicate and a hit without a GTIN.
+     */
+    private static final String SEARCH_RESULTS = """
+            [{"GTIN": "5", "Artikelbenamning": "Mjölk 5"}, {"GTIN": "1", "Artikelbenamning": "Mjölk 1"},
+             {"GTIN": "9", "Artikelbenamning": "Mjölk 9", "Varumarke": "Arla", "Forpackningsstorlek": "1 l"},
+             {"GTIN": "5", "Artikelbenamning": "Mjölk 5"}, {"Artikelbenamning": "Okänd"},
+             {"GTIN": "3", "Artikelbenamning": "Mjölk 3"}, {"GTIN": "2", "Artikelbenamning": "Mjölk 2"}]
+            """;
+    /**
+     * The GTINs of the hits that are stored locally.
+     */
+    private static final Set<String> STORED = Set.of("1", "2", "3", "5");
+
+    private DabasItemRepository dabasItemRepository;
+    private DabasClient dabasClient;
+    private SearchCountEstimator searchCountEstimator;
+    private DabasDataService dabasDataService;
+    private final List<List<String>> hydrated = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dabasItemRepository = mock(DabasItemRepository.class);
+        dabasClient = mock(DabasClient.class);
+        searchCountEstimator = mock(SearchCountEstimator.class);
+        EntityMapper entityMapper = mock(EntityMapper.class);
+        dabasDataService = new DabasDataService(mock(ItemService.class), dabasItemRepository, entityMapper,
+                mock(EntityManager.class), dabasClient, mock(DabasItemIndex.class), searchCountEstimator,
+                mock(ApplicationEventPublisher.class), new SearchResultCache(DataSize.ofMegabytes(1), Duration.ofMinutes(10)), 2);
+        ReflectionTestUtils.setField(dabasDataService, "dabasApiUrl", "http://dabas/");
+        ReflectionTestUtils.setField(dabasDataService, "apiKey", "key");
+        ReflectionTestUtils.setField(dabasDataService, "hydrateChunkSize", 2);
+        ReflectionTestUtils.setField(dabasDataService, "remoteFallbackLimit", 50);
+        ReflectionTestUtils.setField(dabasDataService, "self", dabasDataService);
+
+        when(dabasClient.get(anyString(), eq(DabasCallType.BASE_SEARCH))).thenReturn(Optional.of(SEARCH_RESULTS));
+        when(dabasItemRepository.findExistingGtins(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream().filter(STORED::contains).toList());
+        when(dabasItemRepository.findAllByGtinIn(anyCollection())).thenAnswer(invocation -> {
+            List<String> gtins = List.copyOf(invocation.<Collection<String>>getArgument(0));
+            hydrated.add(gtins);
+            // the database returns the rows in any order
+            List<DabasItem> items = new ArrayList<>(gtins.stream().filter(STORED::contains).map(DabasDataServiceTest::item).toList());
+            Collections.reverse(items);
+            return items;
+        });
+        when(entityMapper.dabasItemToDabasItemResponse(any())).thenAnswer(invocation -> {
+            DabasItem item = invocation.getArgument(0);
+            return new DabasItemResponse(item.getGtin(), item.getName(), null, null, null, null, null, null, null, null, null);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        dabasDataService.shutdown();
+    }
+
+    private static DabasItem item(String gtin) {
+        DabasItem item = new DabasItem();
+        item.setGtin(gtin);
+        item.setName("Mjölk " + gtin);
+        return item;
+    }
+
+    private static List<String> gtins(List<DabasItemResponse> items) {
+        return items.stream().map(DabasItemResponse::gtin).toList();
+    }
+
+    /**
+     * Stubs the database queries of the catalog search with a slice of one article per page, and 42 matching articles.
+     */
+    private DabasDataService catalog(boolean hasNext) {
+        DabasDataService catalog = spy(dabasDataService);
+        doAnswer(invocation -> new SliceImpl<>(List.of(new DabasItemResponse("1", "Mjölk", null, null, null, null, null, null,
+                null, null, null)), invocation.<Pageable>getArgument(1), hasNext))
+                .when(catalog).findResponseSliceBySpecification(any(), any());
+        doReturn(42L).when(catalog).countBySpecification(any(), eq(DabasItem.class));
+        return catalog;
+    }
+
+    private void remoteArticle(String gtin) throws Exception {
+        when(dabasClient.getStream(contains("/gtin/" + gtin + "/"), eq(DabasCallType.ARTICLE))).thenAnswer(invocation ->
+                Optional.of(new ByteArrayInputStream(("{\"GTIN\": \"" + gtin + "\", \"Produktnamn\": \"Remote " + gtin + "\"}")
+                        .getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    @DisplayName("The stored hits of a search are hydrated in chunks, in the order of the DABAS search")
+    void hydratesInChunks() {
+        List<DabasItemResponse> results = dabasDataService.search("mjolk");
+
+        assertEquals(List.of("5", "1", "3", "2"), gtins(results));
+        assertEquals(List.of(List.of("5", "1"), List.of("3", "2")), hydrated);
+    }
+
+    @Test
+    @DisplayName("With the remote fallback, the hits missing locally are fetched from DABAS up to the limit")
+    void fetchesMissingRemotely() throws Exception {
+        ReflectionTestUtils.setField(dabasDataService, "remoteFallback", true);
+        remoteArticle("9");
+
+        List<DabasItemResponse> results = dabasDataService.search("mjolk");
+
+        assertEquals(List.of("5", "1", "9", "3", "2"), gtins(results));
+        assertEquals("Remote 9", results.get(2).name());
+
+        ReflectionTestUtils.setField(dabasDataService, "remoteFallbackLimit", 0);
+        assertEquals(List.of("5", "1", "3", "2"), gtins(dabasDataService.search("MJOLK")));
+    }
+
+    @Test
+    @DisplayName("A search of the same text in another case or spacing is sent to DABAS once")
+    void searchesDabasOnce() throws Exception {
+        dabasDataService.search("Mjolk ");
+        dabasDataService.search("  mjolk");
+
+        verify(dabasClient, times(1)).get(anyString(), eq(DabasCallType.BASE_SEARCH));
+    }
+
+    @Test
+    @DisplayName("Only the requested page of a search is hydrated and the total counts every stored hit")
+    void hydratesOnlyThePage() {
+        Page<DabasItemResponse> page = dabasDataService.searchToPageable("mjolk", 1, 3);
+
+        assertEquals(List.of("2"), gtins(page.getContent()));
+        assertEquals(4, page.getTotalElements());
+        assertEquals(List.of(List.of("2")), hydrated);
+
+        Page<DabasItemResponse> first = dabasDataService.searchToPageable("mjolk", 0, 3);
+        assertEquals(List.of("5", "1", "3"), gtins(first.getContent()));
+        assertEquals(List.of(List.of("2"), List.of("5", "1"), List.of("3")), hydrated);
+    }
+
+    @Test
+    @DisplayName("A page of a search is cached")
+    void cachesPages() {
+        dabasDataService.searchToPageable("mjolk", 0, 2);
+        dabasDataService.searchToPageable("Mjolk", 0, 2);
+
+        assertEquals(1, hydrated.size());
+    }
+
+    @Test
+    @DisplayName("The remote search keeps the hits missing locally as summaries of their search hit")
+    void searchRemote() {
+        List<DabasItemResponse> results = dabasDataService.searchRemote("mjolk", 3);
+
+        assertEquals(List.of("5", "1", "9"), gtins(results));
+        assertEquals(new DabasItemResponse("9", "Mjölk 9", "Arla", null, null, "1 l", null, null, null, null, null), results.get(2));
+    }
+
+    @Test
+    @DisplayName("A streamed search passes every result to the consumer in order, one chunk at a time")
+    void streamsInOrder() throws IOException {
+        List<String> streamed = new ArrayList<>();
+
+        dabasDataService.streamSearch("mjolk", item -> streamed.add(item.gtin()));
+
+        assertEquals(List.of("5", "1", "3", "2"), streamed);
+        assertEquals(List.of(List.of("5", "1"), List.of("3", "2")), hydrated);
+    }
+
+    @Test
+    @DisplayName("A streamed search stops at the first failure of the consumer")
+    void stopsWhenTheConsumerFails() {
+        assertThrows(IOException.class, () -> dabasDataService.streamSearch("mjolk", item -> {
+            throw new IOException("Broken pipe");
+        }));
+
+        assertEquals(List.of(List.of("5", "1")), hydrated);
+    }
+
+    @Test
+    @DisplayName("A cancelled stream hydrates no further chunk")
+    void stopsWhenInterrupted() {
+        List<String> streamed = new ArrayList<>();
+
+        try {
+            assertThrows(InterruptedIOException.class, () -> dabasDataService.streamSearch("mjolk", item -> {
+                streamed.add(item.gtin());
+                Thread.currentThread().interrupt();
+            }));
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertEquals(List.of("5", "1"), streamed);
+        assertEquals(List.of(List.of("5", "1")), hydrated);
+    }
+
+    @Test
+    @DisplayName("Without a count, a slice of the catalog search only tells whether there is a next page")
+    void searchesSlices() {
+        DabasDataService catalog = catalog(true);
+
+        DabasItemSearchPage page = catalog.search(new SearchParams(), PageRequest.of(2, 1), SearchCountMode.NONE, 0);
+
+        assertTrue(page.hasNext());
+        assertNull(page.total());
+        assertFalse(page.totalExact());
+        verify(catalog, never()).countBySpecification(any(), any());
+        verifyNoInteractions(searchCountEstimator);
+    }
+
+    @Test
+    @DisplayName("An exact total is only counted when it is not known from the slice")
+    void countsExactTotals() {
+        DabasDataService catalog = catalog(false);
+
+        DabasItemSearchPage first = catalog.search(new SearchParams(), PageRequest.of(0, 1), SearchCountMode.EXACT, 0);
+
+        assertEquals(1L, first.total());
+        assertTrue(first.totalExact());
+        verify(catalog, never()).countBySpecification(any(), any());
+
+        DabasItemSearchPage next = catalog.search(new SearchParams(), PageRequest.of(2, 1), SearchCountMode.EXACT, 0);
+
+        assertEquals(42L, next.total());
+        assertTrue(next.totalExact());
+    }
+
+    @Test
+    @DisplayName("An approximate total is the estimate of the search, but never less than the results seen so far")
+    void estimatesTotals() {
+        DabasDataService catalog = catalog(true);
+        SearchParams search = new SearchParams();
+        search.setFreeTextSearch("Mjölk ");
+        when(searchCountEstimator.estimate(eq(SearchCountEstimator.Key.of(search)), any()))
+                .thenReturn(OptionalLong.empty(), OptionalLong.of(2), OptionalLong.of(42));
+
+        assertEquals(4L, catalog.search(search, PageRequest.of(2, 1), SearchCountMode.APPROXIMATE, 0).total());
+        assertEquals(4L, catalog.search(search, PageRequest.of(2, 1), SearchCountMode.APPROXIMATE, 0).total());
+        DabasItemSearchPage page = catalog.search(search, PageRequest.of(2, 1), SearchCountMode.APPROXIMATE, 0);
+
+        assertEquals(42L, page.total());
+        assertFalse(page.totalExact());
+        verify(catalog, never()).countBySpecification(any(), any());
+    }
+}
@@ -0,0 +1,122 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.config.EntityMapper;
+import com.guidopierri.pantrybe.dtos.DabasItemWatermark;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.dtos.responses.ImportSummary;
+import com.guidopierri.pantrybe.models.DabasItem;
+import com.guidopierri.pantrybe.models.ImportMode;
+import com.guidopierri.pantrybe.models.ImportRun;
+import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.services.client.DabasCallType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DabasImportServiceTest {
+    private DabasDataService dabasDataService;
+    private DabasClient dabasClient;
+    private DabasItemRepository dabasItemRepository;
+    private DabasImportService dabasImportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dabasDataService = mock(DabasDataService.class);
+        dabasClient = mock(DabasClient.class);
+        dabasItemRepository = mock(DabasItemRepository.class);
+        ImportRunService importRunService = mock(ImportRunService.class);
+        EntityMapper entityMapper = mock(EntityMapper.class);
+        dabasImportService = new DabasImportService(dabasDataService, dabasClient, dabasItemRepository, importRunService,
+                entityMapper, mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(dabasImportService, "dabasApiUrl", "http://dabas/");
+        ReflectionTestUtils.setField(dabasImportService, "fetchWorkers", 2);
+        ReflectionTestUtils.setField(dabasImportService, "maxInFlight", 2);
+        ReflectionTestUtils.setField(dabasImportService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(dabasImportService, "batchSize", 10);
+        ReflectionTestUtils.setField(dabasImportService, "checkpointSize", 10);
+
+        when(importRunService.startOrResume(any())).thenAnswer(invocation -> new ImportRun(invocation.getArgument(0)));
+        when(importRunService.complete(anyLong(), any())).thenReturn(new ImportRun(ImportMode.DELTA));
+        when(dabasItemRepository.findAllWatermarks()).thenReturn(List.of(
+                new DabasItemWatermark("1", "2024-01-01"),
+                new DabasItemWatermark("2", "2024-01-01"),
+                new DabasItemWatermark("3", "2024-01-01")));
+        when(dabasDataService.getArticle(anyString())).thenAnswer(invocation -> Optional.of(new DabasItemResponse(
+                invocation.getArgument(0), "Mjölk", null, null, null, null, null, null, null, null, null)));
+        when(entityMapper.dabasItemResponseToDabasItem(any())).thenAnswer(invocation -> new DabasItem());
+    }
+
+    private void listing(String json) throws Exception {
+        when(dabasClient.getStream(anyString(), eq(DabasCallType.LISTING)))
+                .thenReturn(Optional.of(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    @DisplayName("A delta import only fetches the articles that are new or whose watermark changed")
+    void deltaSkipsUnchanged() throws Exception {
+        listing("""
+                [{"GTIN": "1", "SenastAndradDatum": "2024-01-01"},
+                 {"GTIN": "2", "SenastAndradDatum": "2024-02-01"},
+                 {"GTIN": "4", "SenastAndradDatum": "2024-01-01"}]
+                """);
+
+        ImportSummary summary = dabasImportService.importArticlesGtin(ImportMode.DELTA);
+
+        verify(dabasDataService, never()).getArticle("1");
+        verify(dabasDataService).getArticle("2");
+        verify(dabasDataService).getArticle("4");
+        assertEquals(3, summary.listed());
+    }
+
+    @Test
+    @DisplayName("A full import fetches every listed article")
+    void fullFetchesAll() throws Exception {
+        listing("""
+                [{"GTIN": "1", "SenastAndradDatum": "2024-01-01"},
+                 {"GTIN": "2", "SenastAndradDatum": "2024-02-01"}]
+                """);
+
+        dabasImportService.importArticlesGtin(ImportMode.FULL);
+
+        verify(dabasDataService).getArticle("1");
+        verify(dabasDataService).getArticle("2");
+    }
+
+    @Test
+    @DisplayName("Articles that are no longer listed are deleted")
+    void deletesUnlisted() throws Exception {
+        listing("""
+                [{"GTIN": "1", "SenastAndradDatum": "2024-01-01"},
+                 {"GTIN": "2", "SenastAndradDatum": "2024-01-01"}]
+                """);
+
+        ImportSummary summary = dabasImportService.importArticlesGtin(ImportMode.DELTA);
+
+        verify(dabasItemRepository).deleteAllByGtinIn(List.of("3"));
+        assertEquals(1, summary.deleted());
+    }
+
+    @Test
+    @DisplayName("Nothing is deleted if the listing comes back empty")
+    void emptyListingKeepsArticles() throws Exception {
+        listing("[]");
+
+        ImportSummary summary = dabasImportService.importArticlesGtin(ImportMode.DELTA);
+
+        verify(dabasItemRepository, never()).deleteAllByGtinIn(any());
+        assertEquals(0, summary.deleted());
+    }
+}
@@ -0,0 +1,120 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.dtos.responses.FederatedSearchResponse;
+import com.guidopierri.pantrybe.models.SearchOrder;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.services.search.SuggestionIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DabasSearchServiceTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DabasDataService dabasDataService;
+    private DabasSearchService dabasSearchService;
+
+    @BeforeEach
+    void setUp() {
+        dabasDataService = mock(DabasDataService.class);
+        dabasSearchService = new DabasSearchService(dabasDataService, mock(SuggestionIndex.class), Duration.ofMillis(150), 1, 1);
+        when(dabasDataService.search(any(SearchParams.class), any(Pageable.class))).thenReturn(List.of(item("1", "local"), item("2", "local")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        dabasSearchService.shutdown();
+    }
+
+    private static DabasItemResponse item(String gtin, String name) {
+        return new DabasItemResponse(gtin, name, null, null, null, null, null, null, null, null, null);
+    }
+
+    private static List<String> gtins(FederatedSearchResponse response) {
+        return response.content().stream().map(DabasItemResponse::gtin).toList();
+    }
+
+    @Test
+    @DisplayName("The local results come first, followed by the DABAS results with other GTINs")
+    void mergesResults() {
+        when(dabasDataService.searchRemote("mjolk", 10)).thenReturn(List.of(item("2", "remote"), item("3", "remote")));
+
+        FederatedSearchResponse response = dabasSearchService.federatedSearch("mjolk", 10, Duration.ofSeconds(5));
+
+        assertFalse(response.partial());
+        assertEquals(List.of("1", "2", "3"), gtins(response));
+        assertEquals("local", response.content().get(1).name());
+        ArgumentCaptor<SearchParams> searchParams = ArgumentCaptor.forClass(SearchParams.class);
+        verify(dabasDataService).search(searchParams.capture(), eq(PageRequest.of(0, 10)));
+        assertEquals("mjolk", searchParams.getValue().getFreeTextSearch());
+        assertEquals(SearchOrder.RELEVANCE, searchParams.getValue().getOrder());
+    }
+
+    @Test
+    @DisplayName("The merged results are limited")
+    void limitsResults() {
+        when(dabasDataService.searchRemote("mjolk", 3)).thenReturn(List.of(item("3", "remote"), item("4", "remote")));
+
+        assertEquals(List.of("1", "2", "3"), gtins(dabasSearchService.federatedSearch("mjolk", 3, Duration.ofSeconds(5))));
+    }
+
+    @Test
+    @DisplayName("A DABAS search that misses the deadline leaves the local results, marked as partial")
+    void missesDeadline() {
+        when(dabasDataService.searchRemote(eq("mjolk"), anyInt())).thenAnswer(invocation -> {
+            release.await();
+            return List.of(item("3", "remote"));
+        });
+        long startTime = System.nanoTime();
+
+        FederatedSearchResponse response = dabasSearchService.federatedSearch("mjolk", 10, Duration.ofMillis(50));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) < 2000);
+        assertTrue(response.partial());
+        assertEquals(List.of("1", "2"), gtins(response));
+    }
+
+    @Test
+    @DisplayName("A failing DABAS search leaves the local results, marked as partial")
+    void remoteFails() {
+        when(dabasDataService.searchRemote(eq("mjolk"), anyInt())).thenThrow(new IllegalStateException("DABAS unavailable"));
+
+        FederatedSearchResponse response = dabasSearchService.federatedSearch("mjolk", 10, null);
+
+        assertTrue(response.partial());
+        assertEquals(List.of("1", "2"), gtins(response));
+    }
+
+    @Test
+    @DisplayName("When too many DABAS searches are pending, the catalog is searched locally only")
+    void rejectsWhenSaturated() {
+        when(dabasDataService.searchRemote(eq("slow"), anyInt())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        dabasSearchService.federatedSearch("slow", 10, Duration.ZERO);
+        dabasSearchService.federatedSearch("slow", 10, Duration.ZERO);
+
+        FederatedSearchResponse response = dabasSearchService.federatedSearch("mjolk", 10, Duration.ofSeconds(5));
+
+        assertTrue(response.partial());
+        assertEquals(List.of("1", "2"), gtins(response));
+        verify(dabasDataService, never()).searchRemote(eq("mjolk"), anyInt());
+    }
+}
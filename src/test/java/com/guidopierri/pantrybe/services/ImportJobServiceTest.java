@@ -0,0 +1,103 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.models.ImportMode;
+import com.guidopierri.pantrybe.services.imports.ImportJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ImportJobServiceTest {
+    private DabasImportService dabasImportService;
+    private ImportJobService importJobService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dabasImportService = mock(DabasImportService.class);
+        importJobService = new ImportJobService(dabasImportService);
+        when(dabasImportService.importArticlesGtin(any(), any())).thenAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(1);
+            job.started(1);
+            job.completed(null);
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        importJobService.shutdown();
+    }
+
+    private static void awaitFinished(ImportJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.isActive()) {
+            assertTrue(System.nanoTime() < deadline, "Job " + job.getId() + " did not finish");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("A submitted import runs in the background and can be looked up by its id")
+    void runsSubmittedJob() throws Exception {
+        ImportJob job = importJobService.submit(ImportMode.DELTA);
+        awaitFinished(job);
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertSame(job, importJobService.getJob(job.getId()).orElseThrow());
+        verify(dabasImportService).importArticlesGtin(ImportMode.DELTA, job);
+    }
+
+    @Test
+    @DisplayName("Submitting while an import is active returns the active job")
+    void deduplicatesActiveJob() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            invocation.<ImportJob>getArgument(1).completed(null);
+            return null;
+        }).when(dabasImportService).importArticlesGtin(any(), any());
+
+        ImportJob first = importJobService.submit(ImportMode.FULL);
+        ImportJob second = importJobService.submit(ImportMode.DELTA);
+        release.countDown();
+        awaitFinished(first);
+
+        assertSame(first, second);
+        verify(dabasImportService, times(1)).importArticlesGtin(any(), any());
+        assertNotSame(first, importJobService.submit(ImportMode.DELTA), "A finished job is not reused");
+    }
+
+    @Test
+    @DisplayName("A failing import marks its job as failed")
+    void failedJob() throws Exception {
+        doThrow(new IllegalStateException("DABAS unavailable")).when(dabasImportService).importArticlesGtin(any(), any());
+
+        ImportJob job = importJobService.submit(ImportMode.FULL);
+        awaitFinished(job);
+
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertEquals(1, job.toResponse().errorCount());
+    }
+
+    @Test
+    @DisplayName("Only the most recent finished jobs are kept")
+    void evictsOldestFinishedJobs() throws Exception {
+        ImportJob oldest = importJobService.submit(ImportMode.DELTA);
+        awaitFinished(oldest);
+        ImportJob last = oldest;
+        for (int i = 0; i < 21; i++) {
+            last = importJobService.submit(ImportMode.DELTA);
+            awaitFinished(last);
+        }
+
+        assertTrue(importJobService.getJob(oldest.getId()).isEmpty());
+        assertTrue(importJobService.getJob(last.getId()).isPresent());
+    }
+}
@@ -0,0 +1,91 @@
+package com.guidopierri.pantrybe.services;
+
+import com.guidopierri.pantrybe.models.ImportChunk;
+import com.guidopierri.pantrybe.models.ImportMode;
+import com.guidopierri.pantrybe.models.ImportRun;
+import com.guidopierri.pantrybe.repositories.ImportChunkRepository;
+import com.guidopierri.pantrybe.repositories.ImportFailureRepository;
+import com.guidopierri.pantrybe.repositories.ImportRunRepository;
+import com.guidopierri.pantrybe.services.imports.ImportCheckpointTracker;
+import com.guidopierri.pantrybe.services.imports.ImportOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImportRunServiceTest {
+    private static final long RUN_ID = 7;
+
+    private ImportRunRepository importRunRepository;
+    private ImportChunkRepository importChunkRepository;
+    private ImportRunService importRunService;
+    private ImportRun run;
+
+    @BeforeEach
+    void setUp() {
+        importRunRepository = mock(ImportRunRepository.class);
+        importChunkRepository = mock(ImportChunkRepository.class);
+        importRunService = new ImportRunService(importRunRepository, importChunkRepository, mock(ImportFailureRepository.class));
+        run = new ImportRun(ImportMode.FULL);
+        when(importRunRepository.findById(RUN_ID)).thenReturn(Optional.of(run));
+    }
+
+    /**
+     * Runs a tracker from the cursor over the positions up to the end of the listing, writing every article.
+     */
+    private static List<ImportCheckpointTracker.Chunk> track(long cursorPosition, long end) {
+        List<ImportCheckpointTracker.Chunk> chunks = new ArrayList<>();
+        ImportCheckpointTracker tracker = new ImportCheckpointTracker(10, cursorPosition, chunks::add);
+        for (long position = cursorPosition; position < end; position++) {
+            tracker.register(position);
+            tracker.complete(position, ImportOutcome.WRITTEN);
+        }
+        tracker.finishListing();
+        return chunks;
+    }
+
+    @Test
+    @DisplayName("A new chunk is inserted and advances the run")
+    void commitsNewChunk() {
+        when(importChunkRepository.findByRunIdAndChunkIndex(RUN_ID, 0)).thenReturn(Optional.empty());
+
+        importRunService.commitChunk(RUN_ID, track(0, 4).get(0));
+
+        ArgumentCaptor<ImportChunk> saved = ArgumentCaptor.forClass(ImportChunk.class);
+        verify(importChunkRepository).save(saved.capture());
+        assertEquals(RUN_ID, saved.getValue().getRunId());
+        assertEquals(0, saved.getValue().getStartPosition());
+        assertEquals(4, saved.getValue().getEndPosition());
+        assertEquals(4, saved.getValue().getWritten());
+        assertEquals(4, run.getCursorPosition());
+        assertEquals(4, run.getWritten());
+    }
+
+    @Test
+    @DisplayName("A chunk committed again by a resumed run extends the stored checkpoint")
+    void extendsCommittedChunk() {
+        ImportChunk committed = new ImportChunk(RUN_ID, 0, 0, 4, 3, 1, 0, 0);
+        when(importChunkRepository.findByRunIdAndChunkIndex(RUN_ID, 0)).thenReturn(Optional.of(committed));
+        run.setCursorPosition(4);
+        run.setWritten(3);
+        run.setNotFound(1);
+
+        importRunService.commitChunk(RUN_ID, track(4, 7).get(0));
+
+        verify(importChunkRepository).save(committed);
+        assertEquals(0, committed.getStartPosition());
+        assertEquals(7, committed.getEndPosition());
+        assertEquals(6, committed.getWritten());
+        assertEquals(1, committed.getNotFound());
+        assertEquals(7, run.getCursorPosition());
+        assertEquals(6, run.getWritten());
+        assertEquals(1, run.getNotFound());
+    }
+}
@@ -0,0 +1,243 @@
+package com.guidopierri.pantrybe.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stub of the DABAS API serving a synthetic catalog, used to measure the import and the search
+ * without the real API or an API key.
+ * <p>
+ * The catalog is generated from the article index, so every article is the same on every run. The stub serves
+ * {@code articles/JSON}, {@code article/gtin/{gtin}/JSON} and {@code articles/basesearchparameter/{parameter}/JSON}
+ * under {@link #getBaseUrl()}. Every request waits for the configured latency, and fails with 503 with the
+ * configured error rate.
+ */
+public class StubDabasServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(StubDabasServer.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final long FIRST_GTIN = 7300000000000L;
+    private static final String[] PRODUCTS = {"Mjölk", "Ost", "Smör", "Bröd", "Kaffe", "Te", "Pasta", "Ris",
+            "Tomat", "Gurka", "Äpple", "Banan", "Yoghurt", "Grädde", "Korv", "Skinka", "Lax", "Kyckling",
+            "Müsli", "Havregryn", "Juice", "Choklad", "Kex", "Sylt"};
+    private static final String[] VARIANTS = {"Original", "Ekologisk", "Laktosfri", "Lätt", "Extra", "Klassisk",
+            "Naturell", "Fullkorn"};
+    private static final String[] BRANDS = {"Arla", "Skånemejerier", "Pågen", "Zoégas", "Barilla", "Felix",
+            "Scan", "ICA", "Garant", "Coop"};
+    private static final String[] GROUPS = {"Mejeri", "Bröd", "Kolonial", "Frukt och grönt", "Chark", "Fisk"};
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int catalogSize;
+    private final Duration latency;
+    private final double errorRate;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @param catalogSize The number of articles in the catalog.
+     * @param latency     The time every request waits before it is answered.
+     * @param errorRate   The share of requests answered with 503, between 0 and 1.
+     * @throws IOException If the server cannot be started.
+     */
+    public StubDabasServer(int catalogSize, Duration latency, double errorRate) throws IOException {
+        this.catalogSize = catalogSize;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.executor = Executors.newFixedThreadPool(64);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/DABASService/V2/", this::handle);
+        this.server.start();
+        log.info("Stub DABAS server with {} articles listening on {}", catalogSize, getBaseUrl());
+    }
+
+    /**
+     * @return The URL to use as {@code dabas-api-url}.
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/DABASService/V2/";
+    }
+
+    public int getCatalogSize() {
+        return catalogSize;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @param index The index of the article in the catalog.
+     * @return The GTIN of the article.
+     */
+    public static String gtin(int index) {
+        return String.format("%014d", FIRST_GTIN + index);
+    }
+
+    /**
+     * @param index The index of the article in the catalog.
+     * @return The name of the article, which is what the base search matches on.
+     */
+    public static String name(int index) {
+        return PRODUCTS[index % PRODUCTS.length] + " " + VARIANTS[(index / PRODUCTS.length) % VARIANTS.length];
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            String path = exchange.getRequestURI().getRawPath().substring("/DABASService/V2/".length());
+            sleep();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (path.equals("articles/JSON")) {
+                writeListing(exchange);
+            } else if (path.startsWith("article/gtin/") && path.endsWith("/JSON")) {
+                writeArticle(exchange, path.substring("article/gtin/".length(), path.length() - "/JSON".length()));
+            } else if (path.startsWith("articles/basesearchparameter/") && path.endsWith("/JSON")) {
+                String parameter = path.substring("articles/basesearchparameter/".length(), path.length() - "/JSON".length());
+                writeSearch(exchange, URLDecoder.decode(parameter, StandardCharsets.UTF_8));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    private void writeListing(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(exchange.getResponseBody())) {
+            generator.writeStartArray();
+            for (int i = 0; i < catalogSize; i++) {
+                writeSearchResult(generator, i);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeSearch(HttpExchange exchange, String parameter) throws IOException {
+        String term = parameter.toLowerCase(Locale.ROOT);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(exchange.getResponseBody())) {
+            generator.writeStartArray();
+            for (int i = 0; i < catalogSize; i++) {
+                if (name(i).toLowerCase(Locale.ROOT).contains(term)) {
+                    writeSearchResult(generator, i);
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeArticle(HttpExchange exchange, String gtin) throws IOException {
+        int index = index(gtin);
+        if (index < 0) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody();
+             JsonGenerator generator = JSON_FACTORY.createGenerator(body)) {
+            generator.writeStartObject();
+            generator.writeStringField("GTIN", gtin);
+            generator.writeStringField("Produktnamn", name(index));
+            generator.writeObjectFieldStart("Varumarke");
+            generator.writeStringField("Varumarke", BRANDS[index % BRANDS.length]);
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("Varugrupp");
+            generator.writeStringField("HuvudgruppBenamning", GROUPS[index % GROUPS.length]);
+            generator.writeEndObject();
+            generator.writeArrayFieldStart("Bilder");
+            generator.writeStartObject();
+            generator.writeStringField("Lank", "https://example.com/images/" + gtin + ".jpg");
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeStringField("Storlek", (index % 20 + 1) * 50 + " g");
+            generator.writeStringField("Ingrediensforteckning", "Ingrediens A, ingrediens B*, ingrediens C.");
+            generator.writeArrayFieldStart("Allergener");
+            if (index % 3 == 0) {
+                generator.writeStartObject();
+                generator.writeStringField("Allergenkod", "AM");
+                generator.writeStringField("Nivakod", "CONTAINS");
+                generator.writeEndObject();
+            }
+            if (index % 5 == 0) {
+                generator.writeStartObject();
+                generator.writeStringField("Allergenkod", "AW");
+                generator.writeStringField("Nivakod", "MAY_CONTAIN");
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeStringField("Produktkod", "PK" + index % 97);
+            generator.writeStringField("Nettoinnehall", (index % 20 + 1) * 50 + " g");
+            generator.writeStringField("MangdFardigVaraEnhetKod", "GRM");
+            generator.writeStringField("MangdFardigVara_Formatted", String.valueOf((index % 20 + 1) * 40));
+            generator.writeStringField("SenastAndradDatum", "2024-01-01T00:00:00");
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeSearchResult(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("Forpackningsstorlek", (index % 20 + 1) * 50 + " g");
+        generator.writeStringField("Varumarke", BRANDS[index % BRANDS.length]);
+        generator.writeStringField("GTIN", gtin(index));
+        generator.writeStringField("Artikelbenamning", name(index));
+        generator.writeStringField("TillverkarensArtikelnummer", String.valueOf(index));
+        generator.writeStringField("Hyllkantstext", name(index));
+        generator.writeStringField("Artikeltyp", "Bas");
+        generator.writeStringField("SkapadDatum", "2023-01-01T00:00:00");
+        generator.writeStringField("SenastAndradDatum", "2024-01-01T00:00:00");
+        generator.writeEndObject();
+    }
+
+    private int index(String gtin) {
+        try {
+            long index = Long.parseLong(gtin) - FIRST_GTIN;
+            return index >= 0 && index < catalogSize ? (int) index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void sleep() {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
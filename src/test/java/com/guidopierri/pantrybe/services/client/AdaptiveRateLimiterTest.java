@@ -0,0 +1,75 @@
+package com.guidopierri.pantrybe.services.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+
+    @Test
+    @DisplayName("Invalid settings are rejected")
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(1, 0, 10, 1, 0.5, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(1, 5, 4, 1, 0.5, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(1, 1, 10, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(1, 1, 10, 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(1, 1, 10, 1, 0.5, 0.5));
+    }
+
+    @Test
+    @DisplayName("The initial rate is clamped to the limits")
+    void clampsInitialRate() {
+        assertEquals(2, new AdaptiveRateLimiter(1, 2, 10, 1, 0.5, 1).getRate());
+        assertEquals(10, new AdaptiveRateLimiter(50, 2, 10, 1, 0.5, 1).getRate());
+    }
+
+    @Test
+    @DisplayName("Successes ramp the rate up additively until the maximum")
+    void increasesAdditively() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(5, 1, 8, 2, 0.5, 1);
+
+        limiter.onSuccess();
+        assertEquals(7, limiter.getRate());
+        limiter.onSuccess();
+        assertEquals(8, limiter.getRate());
+    }
+
+    @Test
+    @DisplayName("Throttling backs the rate off multiplicatively until the minimum")
+    void decreasesMultiplicatively() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(8, 3, 10, 1, 0.5, 1);
+
+        limiter.onThrottle();
+        assertEquals(4, limiter.getRate());
+        limiter.onThrottle();
+        assertEquals(3, limiter.getRate());
+    }
+
+    @Test
+    @DisplayName("A burst is served without waiting")
+    void servesBurst() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, 1, 1, 0, 0.5, 5);
+        // The bucket starts with at most one second of tokens.
+        long startTime = System.nanoTime();
+
+        limiter.acquire();
+
+        assertTrue(System.nanoTime() - startTime < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    @DisplayName("A throttled call empties the bucket, so the next call waits for a token")
+    void throttleEmptiesBucket() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(40, 20, 40, 0, 0.5, 10);
+        limiter.onThrottle();
+        long startTime = System.nanoTime();
+
+        limiter.acquire();
+
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        assertTrue(waitedMillis >= 30, "A token takes 50 ms at 20 calls per second, waited " + waitedMillis + " ms");
+    }
+}
@@ -0,0 +1,186 @@
+package com.guidopierri.pantrybe.services.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the allocation and time per article of the {@link DabasArticleReader} with the previous
+ * extraction, which read the body into a String and built a JsonNode tree with a new ObjectMapper.
+ * <p>
+ * The benchmark is not part of the regular test run. Run it with
+ * {@code mvn test -Dtest=DabasArticleReaderBenchmark}, optionally setting {@code benchmark.iterations}.
+ */
+class DabasArticleReaderBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(DabasArticleReaderBenchmark.class);
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    @DisplayName("Allocation per article of the streaming reader and the tree extraction")
+    void allocationPerArticle() throws Exception {
+        byte[] payload = article();
+        assertEquals(treeRead(payload), DabasArticleReader.read(new ByteArrayInputStream(payload)),
+                "Both extractions should read the same article");
+
+        int iterations = Integer.getInteger("benchmark.iterations", 20_000);
+        Result tree = measure("tree", iterations, () -> treeRead(payload));
+        Result streaming = measure("streaming", iterations, () -> DabasArticleReader.read(new ByteArrayInputStream(payload)));
+
+        log.info("Article of {} bytes: tree {} bytes/article, {} us/article; streaming {} bytes/article, {} us/article",
+                payload.length, tree.bytesPerArticle(), String.format("%.1f", tree.microsPerArticle()),
+                streaming.bytesPerArticle(), String.format("%.1f", streaming.microsPerArticle()));
+        assertTrue(streaming.bytesPerArticle() < tree.bytesPerArticle(),
+                "The streaming reader should allocate less than the tree extraction");
+    }
+
+    private static Result measure(String name, int iterations, Extraction extraction) throws Exception {
+        for (int i = 0; i < iterations / 4; i++) {
+            extraction.read();
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        long startTime = System.nanoTime();
+        int blackhole = 0;
+        for (int i = 0; i < iterations; i++) {
+            blackhole += extraction.read().gtin().length();
+        }
+        long elapsed = System.nanoTime() - startTime;
+        long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        log.debug("{}: {}", name, blackhole);
+        return new Result(allocated / iterations, elapsed / 1000.0 / iterations);
+    }
+
+    /**
+     * The extraction used before the streaming reader.
+     */
+    private static DabasItemResponse treeRead(byte[] payload) throws IOException {
+        String response = new String(payload, StandardCharsets.UTF_8);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        JsonNode jsonNode = objectMapper.readTree(response);
+        JsonNode bilder = jsonNode.path("Bilder");
+        List<String> allergens = new ArrayList<>();
+        for (JsonNode allergen : jsonNode.path("Allergener")) {
+            allergens.add(allergen.path("Allergenkod").asText() + ":" + allergen.path("Nivakod").asText());
+        }
+        String ingredients = jsonNode.path("Ingrediensforteckning").asText()
+                .replace("\r", "").replace("\n", "").replace("+", "").replace("*", "");
+        return new DabasItemResponse(jsonNode.path("GTIN").asText(),
+                jsonNode.path("Produktnamn").asText(),
+                jsonNode.path("Varumarke").path("Varumarke").asText(),
+                (bilder.isArray() && !bilder.isEmpty()) ? bilder.path(0).path("Lank").asText() : null,
+                jsonNode.path("Varugrupp").path("HuvudgruppBenamning").asText(),
+                jsonNode.path("Storlek").asText(),
+                ingredients,
+                jsonNode.path("Produktkod").asText(),
+                jsonNode.path("Nettoinnehall").asText(),
+                jsonNode.path("MangdFardigVara_Formatted").asText() + " " + jsonNode.path("MangdFardigVaraEnhetKod").asText(),
+                String.join(",", allergens));
+    }
+
+    /**
+     * A synthetic article shaped like a DABAS article, with the nested sections the import does not need.
+     */
+    private static byte[] article() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("GTIN", "07310865071804");
+            generator.writeStringField("Produktnamn", "Mellanmjölk 1,5%");
+            generator.writeStringField("Artikelbenamning", "Mellanmjölk 1,5% 1l");
+            generator.writeObjectFieldStart("Varumarke");
+            generator.writeStringField("Varumarke", "Arla Ko");
+            generator.writeObjectFieldStart("Tillverkare");
+            generator.writeStringField("Namn", "Arla Foods AB");
+            generator.writeStringField("GLN", "7300156000003");
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("Varugrupp");
+            generator.writeStringField("HuvudgruppBenamning", "Mejeri");
+            generator.writeStringField("VarugruppKod", "1101");
+            generator.writeStringField("VarugruppBenamning", "Mjölk");
+            generator.writeEndObject();
+            generator.writeArrayFieldStart("Bilder");
+            for (int i = 0; i < 4; i++) {
+                generator.writeStartObject();
+                generator.writeStringField("Lank", "https://api.dabas.com/images/07310865071804_" + i + ".jpg");
+                generator.writeStringField("Bildtyp", "Produktbild");
+                generator.writeNumberField("Bredd", 1200);
+                generator.writeNumberField("Hojd", 1200);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeStringField("Storlek", "1 l");
+            generator.writeStringField("Ingrediensforteckning", "Mjölk*, D-vitamin.\r\n* = ekologisk");
+            generator.writeStringField("Produktkod", "10000025");
+            generator.writeStringField("Nettoinnehall", "1000 ml");
+            generator.writeStringField("MangdFardigVaraEnhetKod", "MLT");
+            generator.writeStringField("MangdFardigVara_Formatted", "1000");
+            generator.writeArrayFieldStart("Allergener");
+            generator.writeStartObject();
+            generator.writeStringField("Allergen", "Mjölk");
+            generator.writeStringField("Allergenkod", "AM");
+            generator.writeStringField("Niva", "Innehåller");
+            generator.writeStringField("Nivakod", "CONTAINS");
+            generator.writeStringField("NivakodText", "Innehåller");
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("Naringsinfo");
+            for (int i = 0; i < 30; i++) {
+                generator.writeStartObject();
+                generator.writeStringField("Naringsamne", "Näringsämne " + i);
+                generator.writeNumberField("Mangd", i * 1.25);
+                generator.writeStringField("Enhet", "GRM");
+                generator.writeStringField("Precision", "Ungefär");
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("Forpackningar");
+            for (int i = 0; i < 3; i++) {
+                generator.writeStartObject();
+                generator.writeStringField("GTIN", "0731086507180" + i);
+                generator.writeStringField("Forpackningstyp", "Kartong");
+                generator.writeNumberField("Djup", 70);
+                generator.writeNumberField("Bredd", 70);
+                generator.writeNumberField("Hojd", 200);
+                generator.writeNumberField("Bruttovikt", 1.05);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            for (int i = 0; i < 60; i++) {
+                generator.writeStringField("Egenskap" + i, "Värde för egenskap " + i);
+            }
+            generator.writeStringField("SkapadDatum", "2019-03-12T10:15:30");
+            generator.writeStringField("SenastAndradDatum", "2024-01-05T08:00:00");
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Extraction {
+        DabasItemResponse read() throws Exception;
+    }
+
+    private record Result(long bytesPerArticle, double microsPerArticle) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.guidopierri.pantrybe.services.client;
+
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.exceptions.DabasException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DabasArticleReaderTest {
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("The fields of the response are read from the article")
+    void readsArticle() throws IOException {
+        DabasItemResponse article = DabasArticleReader.read(body("""
+                {"GTIN": "07310865001818",
+                 "Produktnamn": "Mellanmjölk",
+                 "Varumarke": {"Varumarke": "Arla", "Tillverkare": {"Namn": "Arla Foods"}},
+                 "Varugrupp": {"HuvudgruppBenamning": "Mejeri", "VarugruppBenamning": "Mjölk"},
+                 "Bilder": [{"Lank": "https://dabas/1.jpg"}, {"Lank": "https://dabas/2.jpg"}],
+                 "Storlek": "1 l",
+                 "Ingrediensforteckning": "Mellan*mjölk\\r\\n+",
+                 "Produktkod": "1234",
+                 "Nettoinnehall": "1000",
+                 "MangdFardigVara_Formatted": "1",
+                 "MangdFardigVaraEnhetKod": "LTR"}
+                """));
+
+        assertEquals("07310865001818", article.gtin());
+        assertEquals("Mellanmjölk", article.name());
+        assertEquals("Arla", article.brand());
+        assertEquals("Mejeri", article.category());
+        assertEquals("https://dabas/1.jpg", article.image());
+        assertEquals("1 l", article.size());
+        assertEquals("Mellanmjölk", article.ingredients());
+        assertEquals("1234", article.productClassifications());
+        assertEquals("1000", article.bruteWeight());
+        assertEquals("1 LTR", article.drainedWeight());
+    }
+
+    @Test
+    @DisplayName("Unknown and nested sections are skipped without affecting the fields after them")
+    void skipsUnknownSections() throws IOException {
+        DabasItemResponse article = DabasArticleReader.read(body("""
+                {"Naringsinfo": [{"Naringsvarden": [{"GTIN": "nested", "Mangd": 1.5}]}],
+                 "Forpackningar": {"Produktnamn": "nested"},
+                 "GTIN": "1",
+                 "Produktnamn": "Smör"}
+                """));
+
+        assertEquals("1", article.gtin());
+        assertEquals("Smör", article.name());
+    }
+
+    @Test
+    @DisplayName("Missing fields are read as empty strings and a missing image as null")
+    void missingFields() throws IOException {
+        DabasItemResponse article = DabasArticleReader.read(body("{\"GTIN\": \"1\", \"Bilder\": [], \"Varumarke\": null}"));
+
+        assertEquals("", article.name());
+        assertEquals("", article.brand());
+        assertNull(article.image());
+        assertEquals(" ", article.drainedWeight());
+    }
+
+    @Test
+    @DisplayName("An empty body or a body that is not an object is rejected")
+    void rejectsInvalidBody() {
+        assertThrows(DabasException.class, () -> DabasArticleReader.read(body("")));
+        assertThrows(DabasException.class, () -> DabasArticleReader.read(body("[]")));
+    }
+
+    @Test
+    @DisplayName("The declared allergens are kept as their codes and levels of containment")
+    void readsAllergens() throws IOException {
+        DabasItemResponse article = DabasArticleReader.read(body("""
+                {"GTIN": "1",
+                 "Allergener": [{"Allergenkod": "AW", "Nivakod": "CONTAINS", "Allergenbeskrivning": "Gluten"},
+                                {"Allergenkod": " AM ", "Nivakod": "MAY_CONTAIN"},
+                                {"Allergenkod": "AE"},
+                                "malformed"],
+                 "Produktnamn": "Pannkaka"}
+                """));
+
+        assertEquals("AW:CONTAINS,AM:MAY_CONTAIN", article.allergens());
+        assertEquals("Pannkaka", article.name());
+        assertEquals("", DabasArticleReader.read(body("{\"GTIN\": \"1\"}")).allergens());
+    }
+}
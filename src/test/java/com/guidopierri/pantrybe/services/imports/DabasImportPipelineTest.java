@@ -0,0 +1,119 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DabasImportPipelineTest {
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final Map<Integer, ImportOutcome> outcomes = new ConcurrentHashMap<>();
+
+    @Test
+    @DisplayName("Every fetched article is written in batches of at most the batch size")
+    void writesInBatches() throws InterruptedException {
+        ImportStats stats;
+        try (DabasImportPipeline<Integer, String> pipeline = new DabasImportPipeline<>(4, 4, 10, 3,
+                task -> Optional.of("article-" + task), batches::add)) {
+            for (int task = 0; task < 10; task++) {
+                pipeline.submit(task);
+            }
+            stats = pipeline.awaitCompletion();
+        }
+
+        assertEquals(10, batches.stream().mapToInt(List::size).sum());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 3));
+        assertEquals(10, stats.getSubmitted());
+        assertEquals(10, stats.getFetched());
+        assertEquals(10, stats.getWritten());
+        assertEquals(0, stats.getFailed());
+    }
+
+    @Test
+    @DisplayName("No more fetches than the in-flight limit run at the same time")
+    void boundsFetchesInFlight() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try (DabasImportPipeline<Integer, String> pipeline = new DabasImportPipeline<>(8, 2, 100, 10, task -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return Optional.of("article-" + task);
+        }, batches::add)) {
+            for (int task = 0; task < 20; task++) {
+                pipeline.submit(task);
+            }
+            assertEquals(20, pipeline.awaitCompletion().getWritten());
+        }
+
+        assertTrue(maxRunning.get() <= 2, "At most 2 fetches in flight, got " + maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("The listener learns the final outcome of every task")
+    void reportsOutcomes() throws InterruptedException {
+        ImportStats stats;
+        try (DabasImportPipeline<Integer, String> pipeline = new DabasImportPipeline<>(2, 2, 10, 5, task -> {
+            if (task == 1) {
+                return Optional.empty();
+            }
+            if (task == 2) {
+                throw new IllegalStateException("DABAS unavailable");
+            }
+            return Optional.of("article-" + task);
+        }, batches::add, (task, outcome, error) -> outcomes.put(task, outcome))) {
+            for (int task = 0; task < 4; task++) {
+                pipeline.submit(task);
+            }
+            stats = pipeline.awaitCompletion();
+        }
+
+        assertEquals(Map.of(0, ImportOutcome.WRITTEN, 1, ImportOutcome.NOT_FOUND, 2, ImportOutcome.FAILED,
+                3, ImportOutcome.WRITTEN), outcomes);
+        assertEquals(1, stats.getNotFound());
+        assertEquals(1, stats.getFailed());
+        assertEquals(2, stats.getWritten());
+    }
+
+    @Test
+    @DisplayName("A batch the writer rejects fails all of its articles")
+    void failedBatch() throws InterruptedException {
+        ImportStats stats;
+        try (DabasImportPipeline<Integer, String> pipeline = new DabasImportPipeline<>(2, 2, 10, 10,
+                task -> Optional.of("article-" + task), batch -> {
+            throw new IllegalStateException("Database unavailable");
+        }, (task, outcome, error) -> outcomes.put(task, outcome))) {
+            for (int task = 0; task < 3; task++) {
+                pipeline.submit(task);
+            }
+            stats = pipeline.awaitCompletion();
+        }
+
+        assertEquals(Map.of(0, ImportOutcome.FAILED, 1, ImportOutcome.FAILED, 2, ImportOutcome.FAILED), outcomes);
+        assertEquals(3, stats.getFailed());
+        assertEquals(0, stats.getWritten());
+    }
+
+    @Test
+    @DisplayName("The elapsed time stops once the import has finished")
+    void finishedStats() throws InterruptedException {
+        ImportStats stats;
+        try (DabasImportPipeline<Integer, String> pipeline = new DabasImportPipeline<>(1, 1, 1, 1,
+                task -> Optional.of("article-" + task), batches::add)) {
+            pipeline.submit(0);
+            stats = pipeline.awaitCompletion();
+        }
+        long elapsedMillis = stats.getElapsedMillis();
+        Thread.sleep(20);
+
+        assertEquals(elapsedMillis, stats.getElapsedMillis());
+        assertTrue(stats.getArticlesPerSecond() >= 0);
+    }
+}
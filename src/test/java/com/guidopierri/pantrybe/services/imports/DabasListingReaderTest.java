@@ -0,0 +1,75 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import com.guidopierri.pantrybe.exceptions.DabasException;
+import com.guidopierri.pantrybe.models.dabas.search.Search;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DabasListingReaderTest {
+    private final List<Search> articles = new ArrayList<>();
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Every listed article is handed over with its GTIN and dates")
+    void readsArticles() throws Exception {
+        int count = DabasListingReader.read(body("""
+                [{"GTIN": "07310865001818", "Artikelbenamning": "Mjölk", "SkapadDatum": "2020-01-01", "SenastAndradDatum": "2024-01-01"},
+                 {"GTIN": "07310865001825", "SenastAndradDatum": "2024-02-01"}]
+                """), articles::add);
+
+        assertEquals(2, count);
+        assertEquals("07310865001818", articles.get(0).getGtin());
+        assertEquals("2020-01-01", articles.get(0).getSkapadDatum());
+        assertEquals("2024-01-01", articles.get(0).getSenastAndradDatum());
+        assertEquals("07310865001825", articles.get(1).getGtin());
+        assertNull(articles.get(1).getSkapadDatum());
+    }
+
+    @Test
+    @DisplayName("Nested values are skipped without confusing the fields that follow them")
+    void skipsNestedValues() throws Exception {
+        DabasListingReader.read(body("""
+                [{"Bilder": [{"GTIN": "image"}], "Forpackning": {"GTIN": "package"}, "GTIN": "1", "SenastAndradDatum": "2024-01-01"}]
+                """), articles::add);
+
+        assertEquals(1, articles.size());
+        assertEquals("1", articles.get(0).getGtin());
+        assertEquals("2024-01-01", articles.get(0).getSenastAndradDatum());
+    }
+
+    @Test
+    @DisplayName("Articles without a GTIN are not handed over or counted")
+    void skipsArticlesWithoutGtin() throws Exception {
+        int count = DabasListingReader.read(body("""
+                [{"Artikelbenamning": "Okänd"}, {"GTIN": null}, {"GTIN": "1"}]
+                """), articles::add);
+
+        assertEquals(1, count);
+        assertEquals("1", articles.get(0).getGtin());
+    }
+
+    @Test
+    @DisplayName("A listing that is not an array is rejected")
+    void rejectsUnexpectedFormat() {
+        assertThrows(DabasException.class, () -> DabasListingReader.read(body("{\"GTIN\": \"1\"}"), articles::add));
+    }
+
+    @Test
+    @DisplayName("A truncated listing fails after handing over the articles read so far")
+    void truncatedListing() {
+        assertThrows(IOException.class, () -> DabasListingReader.read(body("[{\"GTIN\": \"1\"}, {\"GTIN\": \"2"), articles::add));
+        assertEquals(1, articles.size());
+    }
+}
@@ -0,0 +1,105 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportCheckpointTrackerTest {
+    private final List<ImportCheckpointTracker.Chunk> committed = new ArrayList<>();
+
+    @Test
+    @DisplayName("An empty listing commits nothing")
+    void emptyListing() {
+        ImportCheckpointTracker tracker = new ImportCheckpointTracker(3, 0, committed::add);
+
+        tracker.finishListing();
+
+        assertTrue(committed.isEmpty());
+        assertEquals(0, tracker.getCursorPosition());
+    }
+
+    @Test
+    @DisplayName("A chunk is committed once all of its positions have completed")
+    void commitsCompletedChunk() {
+        ImportCheckpointTracker tracker = new ImportCheckpointTracker(3, 0, committed::add);
+        for (long position = 0; position < 4; position++) {
+            tracker.register(position);
+        }
+
+        tracker.complete(0, ImportOutcome.WRITTEN);
+        tracker.complete(2, ImportOutcome.FAILED);
+        assertTrue(committed.isEmpty(), "Position 1 has not completed yet");
+        tracker.complete(1, ImportOutcome.SKIPPED);
+
+        assertEquals(1, committed.size());
+        ImportCheckpointTracker.Chunk chunk = committed.get(0);
+        assertEquals(0, chunk.getIndex());
+        assertEquals(0, chunk.getStartPosition());
+        assertEquals(3, chunk.getEndPosition());
+        assertEquals(1, chunk.getWritten());
+        assertEquals(1, chunk.getFailed());
+        assertEquals(1, chunk.getSkipped());
+        assertEquals(0, chunk.getNotFound());
+        assertEquals(3, tracker.getCursorPosition());
+    }
+
+    @Test
+    @DisplayName("A completed chunk waits for the chunks before it")
+    void commitsInListingOrder() {
+        ImportCheckpointTracker tracker = new ImportCheckpointTracker(2, 0, committed::add);
+        for (long position = 0; position < 6; position++) {
+            tracker.register(position);
+        }
+
+        tracker.complete(2, ImportOutcome.WRITTEN);
+        tracker.complete(3, ImportOutcome.WRITTEN);
+        tracker.complete(5, ImportOutcome.NOT_FOUND);
+        tracker.complete(4, ImportOutcome.WRITTEN);
+        assertTrue(committed.isEmpty());
+        tracker.complete(1, ImportOutcome.WRITTEN);
+        tracker.complete(0, ImportOutcome.WRITTEN);
+
+        assertEquals(List.of(0L, 1L, 2L), committed.stream().map(ImportCheckpointTracker.Chunk::getIndex).toList());
+        assertEquals(1, committed.get(2).getNotFound());
+    }
+
+    @Test
+    @DisplayName("The last, partially filled chunk is committed when the listing ends")
+    void commitsPartialChunkAtEnd() {
+        ImportCheckpointTracker tracker = new ImportCheckpointTracker(4, 0, committed::add);
+        tracker.register(0);
+        tracker.register(1);
+        tracker.complete(0, ImportOutcome.WRITTEN);
+        tracker.complete(1, ImportOutcome.WRITTEN);
+        assertTrue(committed.isEmpty(), "More positions of the chunk may still be listed");
+
+        tracker.finishListing();
+
+        assertEquals(1, committed.size());
+        assertEquals(2, committed.get(0).getEndPosition());
+        assertEquals(2, tracker.getCursorPosition());
+    }
+
+    @Test
+    @DisplayName("A resumed import continues with the chunk of its cursor")
+    void resumesFromCursor() {
+        ImportCheckpointTracker tracker = new ImportCheckpointTracker(10, 20, committed::add);
+        assertEquals(20, tracker.getCursorPosition());
+
+        for (long position = 20; position < 25; position++) {
+            tracker.register(position);
+            tracker.complete(position, ImportOutcome.WRITTEN);
+        }
+        tracker.finishListing();
+
+        assertEquals(1, committed.size());
+        assertEquals(2, committed.get(0).getIndex());
+        assertEquals(20, committed.get(0).getStartPosition());
+        assertEquals(25, committed.get(0).getEndPosition());
+        assertEquals(5, committed.get(0).getWritten());
+    }
+}
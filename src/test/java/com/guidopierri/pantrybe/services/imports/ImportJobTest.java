@@ -0,0 +1,86 @@
+package com.guidopierri.pantrybe.services.imports;
+
+import com.guidopierri.pantrybe.dtos.responses.ImportJobResponse;
+import com.guidopierri.pantrybe.models.ImportMode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportJobTest {
+
+    private static ImportStats stats(int submitted, int written) {
+        ImportStats stats = new ImportStats();
+        for (int i = 0; i < submitted; i++) {
+            stats.recordSubmitted();
+        }
+        stats.recordWritten(written);
+        return stats;
+    }
+
+    @Test
+    @DisplayName("A queued job reports no progress")
+    void queued() {
+        ImportJobResponse response = new ImportJob(ImportMode.DELTA).toResponse();
+
+        assertEquals(ImportJob.Status.QUEUED, response.status());
+        assertEquals(ImportMode.DELTA, response.mode());
+        assertNull(response.runId());
+        assertEquals(0, response.submitted());
+        assertEquals(0, response.retried());
+    }
+
+    @Test
+    @DisplayName("A running job reports the live counters of the import")
+    void running() {
+        ImportJob job = new ImportJob(ImportMode.FULL);
+        job.started(3);
+        job.listed();
+        job.listed();
+        job.tracking(stats(2, 1));
+
+        ImportJobResponse response = job.toResponse();
+
+        assertEquals(ImportJob.Status.RUNNING, response.status());
+        assertEquals(3L, response.runId());
+        assertEquals(2, response.listed());
+        assertEquals(2, response.submitted());
+        assertEquals(1, response.written());
+    }
+
+    @Test
+    @DisplayName("Retrying the failures keeps the counters of the listing")
+    void retrying() {
+        ImportJob job = new ImportJob(ImportMode.FULL);
+        job.started(3);
+        job.tracking(stats(10, 8));
+
+        job.retrying(stats(2, 1));
+        ImportJobResponse response = job.toResponse();
+
+        assertEquals(10, response.submitted());
+        assertEquals(8, response.written());
+        assertEquals(2, response.retried());
+        assertEquals(1, response.recovered());
+    }
+
+    @Test
+    @DisplayName("Only the most recent errors are kept, but all of them are counted")
+    void recentErrors() {
+        ImportJob job = new ImportJob(ImportMode.FULL);
+        for (int i = 0; i < 60; i++) {
+            job.recordError("gtin" + i, new IOException("timeout"));
+        }
+        job.failed(new IllegalStateException("listing unavailable"));
+
+        ImportJobResponse response = job.toResponse();
+
+        assertEquals(ImportJob.Status.FAILED, response.status());
+        assertFalse(job.isActive());
+        assertEquals(61, response.errorCount());
+        assertEquals(50, response.recentErrors().size());
+        assertEquals("import: listing unavailable", response.recentErrors().get(49));
+    }
+}
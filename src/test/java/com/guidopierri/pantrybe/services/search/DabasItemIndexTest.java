@@ -0,0 +1,265 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.dtos.DabasItemIndexEntry;
+import com.guidopierri.pantrybe.models.Allergen;
+import com.guidopierri.pantrybe.models.SearchOrder;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DabasItemIndexTest {
+    private static final List<DabasItemIndexEntry> ARTICLES = List.of(
+            new DabasItemIndexEntry(10, "Havremjölk", "Oatly", "Mejeri", "Vatten, havre", "AW:CONTAINS"),
+            new DabasItemIndexEntry(20, "Lättmjölk", "Arla", "Mejeri", "Mjölk", "AM:CONTAINS"),
+            new DabasItemIndexEntry(30, "Mjölk", "Arla", "Mejeri", "Mjölk", "AM:CONTAINS"),
+            new DabasItemIndexEntry(40, "Pannkaka", "Findus", "Fryst", "Vetemjöl, mjölk, ägg", "AW:CONTAINS,AM:CONTAINS,AE:CONTAINS"),
+            new DabasItemIndexEntry(50, "Tomat", "ICA", "Grönsaker", null, null));
+
+    private DabasItemRepository dabasItemRepository;
+    private DabasItemIndex index;
+
+    @BeforeEach
+    void setUp() {
+        dabasItemRepository = mock(DabasItemRepository.class);
+        when(dabasItemRepository.findAllIndexEntries()).thenReturn(ARTICLES);
+        index = new DabasItemIndex(dabasItemRepository);
+    }
+
+    private List<Long> search(String freeText, boolean fuzzy, SearchOrder order) {
+        SearchParams params = SearchParams.builder().freeTextSearch(freeText).fuzzy(fuzzy).order(order).build();
+        return index.search(params, PageRequest.of(0, 10)).getContent();
+    }
+
+    @Test
+    @DisplayName("An index that was never built is not ready and refuses searches")
+    void notReady() {
+        assertFalse(index.isReady());
+        assertThrows(IllegalStateException.class, () -> search("mjolk", false, null));
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+    }
+
+    @Test
+    @DisplayName("An empty index is ready and finds nothing")
+    void emptyIndex() {
+        when(dabasItemRepository.findAllIndexEntries()).thenReturn(List.of());
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertEquals(List.of(), search(null, false, null));
+        assertEquals(List.of(), search("mjolk", true, SearchOrder.RELEVANCE));
+    }
+
+    @Test
+    @DisplayName("A search without words finds every article in name order")
+    void noWords() {
+        index.rebuild();
+
+        assertEquals(List.of(10L, 20L, 30L, 40L, 50L), search(null, false, null));
+        assertEquals(List.of(10L, 20L, 30L, 40L, 50L), search("   ", false, null));
+    }
+
+    @Test
+    @DisplayName("Ordered by name, the words are matched as substrings of the names and brands only")
+    void substringByName() {
+        index.rebuild();
+
+        assertEquals(List.of(10L, 20L, 30L), search("MJÖLK", false, null));
+        assertEquals(List.of(20L, 30L), search("mjolk arla", false, null));
+    }
+
+    @Test
+    @DisplayName("A page beyond the results is empty but keeps the total")
+    void pageBeyondResults() {
+        index.rebuild();
+        SearchParams byName = SearchParams.builder().freeTextSearch("mjolk").build();
+        SearchParams byRelevance = SearchParams.builder().freeTextSearch("mjolk").order(SearchOrder.RELEVANCE).build();
+
+        Page<Long> page = index.search(byName, PageRequest.of(5, 2));
+        assertEquals(List.of(), page.getContent());
+        assertEquals(3, page.getTotalElements());
+        page = index.search(byRelevance, PageRequest.of(5, 2));
+        assertEquals(List.of(), page.getContent());
+        assertEquals(4, page.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Ordered by relevance, an exact name outranks a name containing the word and an ingredient")
+    void exactNameFirst() {
+        index.rebuild();
+
+        List<Long> ids = search("mjolk", false, SearchOrder.RELEVANCE);
+
+        assertEquals(4, ids.size());
+        assertEquals(30L, ids.get(0));
+        assertEquals(40L, ids.get(3));
+    }
+
+    @Test
+    @DisplayName("Ordered by relevance, a name starting with the word outranks one containing it")
+    void prefixBeforeSubstring() {
+        when(dabasItemRepository.findAllIndexEntries()).thenReturn(List.of(
+                new DabasItemIndexEntry(1, "Lättmjölk", null, null, null, null),
+                new DabasItemIndexEntry(2, "Mjölkchoklad", null, null, null, null)));
+        index.rebuild();
+
+        assertEquals(List.of(1L, 2L), search("mjolk", false, null));
+        assertEquals(List.of(2L, 1L), search("mjolk", false, SearchOrder.RELEVANCE));
+    }
+
+    @Test
+    @DisplayName("The allowed number of typos grows with the length of the word")
+    void maxEdits() {
+        assertEquals(0, DabasItemIndex.maxEdits(""));
+        assertEquals(0, DabasItemIndex.maxEdits("ica"));
+        assertEquals(1, DabasItemIndex.maxEdits("tomt"));
+        assertEquals(1, DabasItemIndex.maxEdits("tomater"));
+        assertEquals(2, DabasItemIndex.maxEdits("pannkaka"));
+    }
+
+    @Test
+    @DisplayName("A fuzzy search matches the tokens within the allowed number of typos")
+    void fuzzy() {
+        index.rebuild();
+
+        assertEquals(List.of(), search("tomar", false, null));
+        assertEquals(List.of(50L), search("tomar", true, null));
+        assertEquals(List.of(40L), search("pamnkakka", true, null));
+        assertEquals(List.of(10L), search("hafremjölc", true, null));
+    }
+
+    @Test
+    @DisplayName("A fuzzy search matches nothing beyond the allowed number of typos")
+    void fuzzyLimits() {
+        index.rebuild();
+
+        // Two substitutions in a word of five characters, and one in a word too short for typos.
+        assertEquals(List.of(), search("tpmar", true, null));
+        assertEquals(List.of(), search("ika", true, null));
+        // Three edits in a word of nine characters.
+        assertEquals(List.of(), search("pamnkakko", true, null));
+    }
+
+    @Test
+    @DisplayName("Ordered by relevance, the words also match the category and the ingredients")
+    void relevanceMatchesEveryField() {
+        index.rebuild();
+
+        assertEquals(List.of(40L), search("vetemjol", false, SearchOrder.RELEVANCE));
+        assertEquals(List.of(50L), search("gronsaker", false, SearchOrder.RELEVANCE));
+        assertEquals(List.of(), search("vetemjol", false, null));
+    }
+
+    @Test
+    @DisplayName("Ordered by relevance, a word in the name outranks the brand, the category and the ingredients")
+    void fieldWeights() {
+        when(dabasItemRepository.findAllIndexEntries()).thenReturn(List.of(
+                new DabasItemIndexEntry(1, "Bryggmalet", null, "Kaffe", null, null),
+                new DabasItemIndexEntry(2, "Kaffe", null, null, null, null),
+                new DabasItemIndexEntry(3, "Mellanrost", "Kaffe", null, null, null),
+                new DabasItemIndexEntry(4, "Tiramisu", null, null, "Kaffe", null)));
+        index.rebuild();
+
+        assertEquals(List.of(2L, 3L, 1L, 4L), search("kaffe", false, SearchOrder.RELEVANCE));
+    }
+
+    @Test
+    @DisplayName("Ordered by relevance, a word in a short name outranks the same word in a long one")
+    void fieldLengthNormalization() {
+        when(dabasItemRepository.findAllIndexEntries()).thenReturn(List.of(
+                new DabasItemIndexEntry(1, "Kaffe ekologisk mellanrost bryggmalet", null, null, null, null),
+                new DabasItemIndexEntry(2, "Kaffe mellanrost", null, null, null, null)));
+        index.rebuild();
+
+        assertEquals(List.of(1L, 2L), search("kaffe", false, null));
+        assertEquals(List.of(2L, 1L), search("kaffe", false, SearchOrder.RELEVANCE));
+    }
+
+    @Test
+    @DisplayName("Ordered by relevance, the pages follow the ranking and the total counts every match")
+    void relevancePages() {
+        index.rebuild();
+        SearchParams params = SearchParams.builder().freeTextSearch("mjolk").order(SearchOrder.RELEVANCE).build();
+        List<Long> ranking = search("mjolk", false, SearchOrder.RELEVANCE);
+
+        Page<Long> second = index.search(params, PageRequest.of(1, 2));
+
+        assertEquals(ranking.subList(2, 4), second.getContent());
+        assertEquals(4, second.getTotalElements());
+    }
+
+    private List<Long> filter(SearchParams params) {
+        return index.search(params, PageRequest.of(0, 10)).getContent();
+    }
+
+    @Test
+    @DisplayName("Only the articles containing every requested allergen are found")
+    void containsAllergens() {
+        index.rebuild();
+
+        assertEquals(List.of(10L, 40L), filter(SearchParams.builder().containsAllergens(List.of(Allergen.GLUTEN)).build()));
+        assertEquals(List.of(40L), filter(SearchParams.builder().containsAllergens(List.of(Allergen.GLUTEN, Allergen.EGGS)).build()));
+        assertEquals(List.of(), filter(SearchParams.builder().containsAllergens(List.of(Allergen.FISH)).build()));
+    }
+
+    @Test
+    @DisplayName("The articles containing or possibly containing an excluded allergen are left out")
+    void withoutAllergens() {
+        when(dabasItemRepository.findAllIndexEntries()).thenReturn(List.of(
+                new DabasItemIndexEntry(1, "Choklad", null, null, null, "AM:MAY_CONTAIN,AN:CONTAINS"),
+                new DabasItemIndexEntry(2, "Havrekaka", null, null, null, "AW:CONTAINS,AM:FREE_FROM"),
+                new DabasItemIndexEntry(3, "Mjölkchoklad", null, null, null, "AM:CONTAINS"),
+                new DabasItemIndexEntry(4, "Vatten", null, null, null, "XX:CONTAINS,malformed")));
+        index.rebuild();
+
+        assertEquals(List.of(2L, 4L), filter(SearchParams.builder().withoutAllergens(List.of(Allergen.MILK)).build()));
+        assertEquals(List.of(4L), filter(SearchParams.builder().withoutAllergens(List.of(Allergen.MILK, Allergen.GLUTEN)).build()));
+    }
+
+    @Test
+    @DisplayName("An ingredient filter matches the ingredient words containing it")
+    void ingredients() {
+        when(dabasItemRepository.findAllIndexEntries()).thenReturn(List.of(
+                new DabasItemIndexEntry(1, "Choklad", null, null, "Socker, kakaosmör, skummjölkspulver", null),
+                new DabasItemIndexEntry(2, "Havredryck", null, null, "Vatten, havre", null),
+                new DabasItemIndexEntry(3, "Mjölk", null, null, "Mjölk", null),
+                new DabasItemIndexEntry(4, "Mjölkfri", null, null, null, null)));
+        index.rebuild();
+
+        assertEquals(List.of(1L, 3L), filter(SearchParams.builder().ingredients(List.of("Mjölk")).build()));
+        assertEquals(List.of(1L), filter(SearchParams.builder().ingredients(List.of("mjolk", "socker")).build()));
+        assertEquals(List.of(2L, 4L), filter(SearchParams.builder().withoutIngredients(List.of("mjölk")).build()));
+    }
+
+    @Test
+    @DisplayName("The filters narrow the free text search")
+    void filtersWithFreeText() {
+        index.rebuild();
+
+        SearchParams params = SearchParams.builder().freeTextSearch("mjolk").withoutAllergens(List.of(Allergen.GLUTEN))
+                .withoutIngredients(List.of("havre")).build();
+        assertEquals(List.of(20L, 30L), filter(params));
+    }
+
+    @Test
+    @DisplayName("An allergen is found by its GS1 allergen type code")
+    void allergenFromCode() {
+        assertEquals(Optional.of(Allergen.GLUTEN), Allergen.fromCode("AW"));
+        assertEquals(Optional.of(Allergen.MILK), Allergen.fromCode("AM"));
+        assertEquals(Optional.empty(), Allergen.fromCode("XX"));
+        assertEquals(Optional.empty(), Allergen.fromCode(null));
+    }
+}
@@ -0,0 +1,141 @@
+package com.guidopierri.pantrybe.services.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacetBitmapTest {
+    private static final int ARTICLES = 200;
+
+    private static BitSet bits(int... positions) {
+        BitSet bits = new BitSet();
+        for (int position : positions) {
+            bits.set(position);
+        }
+        return bits;
+    }
+
+    /**
+     * A value held by 6 of 200 articles, kept as an array since 6 * 32 < 200. The trailing position is past the size.
+     */
+    private static FacetBitmap array() {
+        return FacetBitmap.of(new int[]{0, 3, 63, 64, 130, 199, -1}, 6, ARTICLES);
+    }
+
+    /**
+     * A value held by 7 of 200 articles, kept as a bitmap since 7 * 32 >= 200.
+     */
+    private static FacetBitmap bitmap() {
+        return FacetBitmap.of(new int[]{0, 3, 63, 64, 100, 130, 199}, 7, ARTICLES);
+    }
+
+    @Test
+    @DisplayName("An empty value matches nothing")
+    void empty() {
+        FacetBitmap facet = FacetBitmap.of(new int[0], 0, ARTICLES);
+        BitSet results = bits(1, 2, 3);
+
+        assertEquals(0, facet.cardinality());
+        assertEquals(0, facet.countIn(results.toLongArray()));
+        facet.removeFrom(results);
+        assertEquals(bits(1, 2, 3), results);
+        facet.retainIn(results);
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    @DisplayName("An empty index yields an empty value")
+    void emptyIndex() {
+        FacetBitmap facet = FacetBitmap.of(new int[0], 0, 0);
+
+        assertEquals(0, facet.cardinality());
+        assertEquals(0, facet.countIn(new long[0]));
+    }
+
+    @Test
+    @DisplayName("Only the given number of positions are kept")
+    void cardinality() {
+        assertEquals(6, array().cardinality());
+        assertEquals(7, bitmap().cardinality());
+    }
+
+    @Test
+    @DisplayName("The array and bitmap containers give the same results")
+    void containersAgree() {
+        BitSet results = bits(0, 3, 64, 65, 130, 198, 199);
+        // The array holds the first 6 positions, the bitmap also holds 100.
+        assertEquals(5, array().countIn(results.toLongArray()));
+        assertEquals(5, bitmap().countIn(results.toLongArray()));
+
+        BitSet retainedArray = (BitSet) results.clone();
+        array().retainIn(retainedArray);
+        BitSet retainedBitmap = (BitSet) results.clone();
+        bitmap().retainIn(retainedBitmap);
+        assertEquals(bits(0, 3, 64, 130, 199), retainedArray);
+        assertEquals(retainedArray, retainedBitmap);
+
+        BitSet removedArray = (BitSet) results.clone();
+        array().removeFrom(removedArray);
+        BitSet removedBitmap = (BitSet) results.clone();
+        bitmap().removeFrom(removedBitmap);
+        assertEquals(bits(65, 198), removedArray);
+        assertEquals(removedArray, removedBitmap);
+    }
+
+    @Test
+    @DisplayName("Both containers are used around the size threshold")
+    void containerTransition() {
+        // 6 positions take 192 bits as an array, less than a bitmap of 200 articles; 7 take 224 bits.
+        int[] positions = {1, 2, 3, 4, 5, 6, 7};
+        BitSet results = bits(2, 4, 6, 8);
+        FacetBitmap below = FacetBitmap.of(positions, 6, ARTICLES);
+        FacetBitmap at = FacetBitmap.of(positions, 7, ARTICLES);
+
+        assertEquals(3, below.countIn(results.toLongArray()));
+        assertEquals(3, at.countIn(results.toLongArray()));
+
+        BitSet remaining = (BitSet) results.clone();
+        below.removeFrom(remaining);
+        assertEquals(bits(8), remaining);
+        remaining = (BitSet) results.clone();
+        at.removeFrom(remaining);
+        assertEquals(bits(8), remaining);
+    }
+
+    @Test
+    @DisplayName("Results shorter than the value are counted and intersected")
+    void shortResults() {
+        // BitSet.toLongArray() drops the trailing empty words, so the results only span the first word.
+        BitSet results = bits(3, 5);
+        assertEquals(1, results.toLongArray().length);
+
+        assertEquals(1, array().countIn(results.toLongArray()));
+        assertEquals(1, bitmap().countIn(results.toLongArray()));
+
+        BitSet retained = (BitSet) results.clone();
+        bitmap().retainIn(retained);
+        assertEquals(bits(3), retained);
+        retained = (BitSet) results.clone();
+        array().retainIn(retained);
+        assertEquals(bits(3), retained);
+    }
+
+    @Test
+    @DisplayName("Results longer than the value are counted and intersected")
+    void longResults() {
+        BitSet results = bits(199, 300);
+
+        assertEquals(1, array().countIn(results.toLongArray()));
+        assertEquals(1, bitmap().countIn(results.toLongArray()));
+
+        BitSet retained = (BitSet) results.clone();
+        bitmap().retainIn(retained);
+        assertEquals(bits(199), retained);
+        BitSet removed = (BitSet) results.clone();
+        bitmap().removeFrom(removed);
+        assertEquals(bits(300), removed);
+    }
+}
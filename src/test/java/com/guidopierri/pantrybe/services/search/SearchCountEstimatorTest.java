@@ -0,0 +1,102 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.models.Allergen;
+import com.guidopierri.pantrybe.models.SearchOrder;
+import com.guidopierri.pantrybe.models.SearchParams;
+import com.guidopierri.pantrybe.services.DabasCatalogChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCountEstimatorTest {
+    private final SearchCountEstimator estimator = new SearchCountEstimator(Duration.ofMinutes(5), 10);
+
+    @AfterEach
+    void tearDown() {
+        estimator.shutdown();
+    }
+
+    private static SearchCountEstimator.Key key(String freeText, String category, String brand) {
+        return SearchCountEstimator.Key.of(SearchParams.builder().freeTextSearch(freeText).category(category).brand(brand).build());
+    }
+
+    /**
+     * Waits for the background count of the key to be stored.
+     */
+    private OptionalLong awaitEstimate(SearchCountEstimator.Key key, LongSupplier counter) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            OptionalLong estimate = estimator.estimate(key, counter);
+            if (estimate.isPresent()) {
+                return estimate;
+            }
+            Thread.sleep(10);
+        }
+        return OptionalLong.empty();
+    }
+
+    @Test
+    @DisplayName("Searches that only differ in case, whitespace, order or paging share a key")
+    void sameKey() {
+        SearchParams byRelevance = SearchParams.builder().freeTextSearch("  MJÖLK   lätt ").order(SearchOrder.RELEVANCE)
+                .containsAllergens(List.of(Allergen.MILK)).build();
+        SearchParams byName = SearchParams.builder().freeTextSearch("mjolk latt")
+                .containsAllergens(List.of(Allergen.MILK)).build();
+
+        assertEquals(SearchCountEstimator.Key.of(byName), SearchCountEstimator.Key.of(byRelevance));
+        assertEquals(key(null, null, null), key("", null, null));
+    }
+
+    @Test
+    @DisplayName("Filters that would join to the same text keep separate keys")
+    void separateKeys() {
+        assertNotEquals(key("mjolk", "Mejeri|Arla", null), key("mjolk", "Mejeri", "Arla"));
+        assertNotEquals(key("mjolk", "null", null), key("mjolk", null, null));
+        assertNotEquals(SearchCountEstimator.Key.of(SearchParams.builder().ingredients(List.of("mjolk")).build()),
+                SearchCountEstimator.Key.of(SearchParams.builder().withoutIngredients(List.of("mjolk")).build()));
+    }
+
+    @Test
+    @DisplayName("The key keeps its filters when the search is changed afterwards")
+    void keyIsImmutable() {
+        SearchParams search = SearchParams.builder().containsAllergens(new ArrayList<>(List.of(Allergen.MILK))).build();
+        SearchCountEstimator.Key key = SearchCountEstimator.Key.of(search);
+
+        search.getContainsAllergens().add(Allergen.EGGS);
+
+        assertEquals(List.of(Allergen.MILK), key.containsAllergens());
+    }
+
+    @Test
+    @DisplayName("A search is counted in the background and then estimated")
+    void countsInBackground() throws InterruptedException {
+        SearchCountEstimator.Key key = key("mjolk", null, null);
+
+        assertEquals(OptionalLong.empty(), estimator.estimate(key, () -> 42));
+        assertEquals(OptionalLong.of(42), awaitEstimate(key, () -> 42));
+    }
+
+    @Test
+    @DisplayName("A change of the catalog counts again but keeps the previous total meanwhile")
+    void recountsAfterCatalogChange() throws InterruptedException {
+        SearchCountEstimator.Key key = key("mjolk", null, null);
+        assertEquals(OptionalLong.of(11), awaitEstimate(key, () -> 11));
+
+        estimator.onCatalogChanged(new DabasCatalogChangedEvent("test"));
+
+        assertEquals(OptionalLong.of(11), estimator.estimate(key, () -> 12));
+        OptionalLong estimate = estimator.estimate(key, () -> 12);
+        for (int i = 0; i < 200 && estimate.getAsLong() == 11; i++) {
+            Thread.sleep(10);
+            estimate = estimator.estimate(key, () -> 12);
+        }
+        assertEquals(OptionalLong.of(12), estimate);
+    }
+}
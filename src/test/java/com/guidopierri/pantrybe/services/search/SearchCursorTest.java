@@ -0,0 +1,51 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.exceptions.DataValidationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCursorTest {
+
+    @Test
+    @DisplayName("A cursor round trips its name and id")
+    void roundTrip() {
+        SearchCursor cursor = new SearchCursor("Mellanmjölk", 42);
+
+        assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    @DisplayName("A cursor round trips names with unicode, separators and URL characters")
+    void roundTripUnicode() {
+        for (String name : new String[]{"Äppelmos: Ö-märkt", "カフェ/ラテ+?&=", "", ":", "1:2"}) {
+            SearchCursor cursor = new SearchCursor(name, Long.MAX_VALUE);
+
+            String encoded = cursor.encode();
+
+            assertTrue(encoded.matches("[A-Za-z0-9_-]*"), "The cursor should be URL safe: " + encoded);
+            assertEquals(cursor, SearchCursor.decode(encoded));
+        }
+    }
+
+    @Test
+    @DisplayName("A cursor without a name decodes to a null name, not the name \"null\"")
+    void roundTripNullName() {
+        SearchCursor cursor = new SearchCursor(null, 7);
+
+        SearchCursor decoded = SearchCursor.decode(cursor.encode());
+
+        assertNull(decoded.name());
+        assertEquals(7, decoded.id());
+        assertEquals("null", SearchCursor.decode(new SearchCursor("null", 7).encode()).name());
+    }
+
+    @Test
+    @DisplayName("An invalid cursor is rejected")
+    void invalidCursor() {
+        assertThrows(DataValidationException.class, () -> SearchCursor.decode("not base64!"));
+        assertThrows(DataValidationException.class, () -> SearchCursor.decode(""));
+        assertThrows(DataValidationException.class, () -> SearchCursor.decode(new SearchCursor("x", 1).encode().substring(1)));
+    }
+}
@@ -0,0 +1,120 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.dtos.responses.DabasItemResponse;
+import com.guidopierri.pantrybe.services.DabasCatalogChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private List<String> load(String... gtins) {
+        loads.incrementAndGet();
+        return List.of(gtins);
+    }
+
+    @Test
+    @DisplayName("The hits of a search are loaded once and then served from the cache")
+    void cachesHits() {
+        SearchResultCache cache = new SearchResultCache(DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+
+        assertEquals(List.of("1", "2"), cache.hits("mjolk", () -> load("1", "2")));
+        assertEquals(List.of("1", "2"), cache.hits("mjolk", () -> load("3")));
+
+        assertEquals(1, loads.get());
+        assertTrue(cache.getWeight() > 0);
+    }
+
+    @Test
+    @DisplayName("Hits, summaries and pages of the same search are cached separately")
+    void separatesKinds() {
+        SearchResultCache cache = new SearchResultCache(DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+        DabasItemResponse item = new DabasItemResponse("1", "Mjölk", "Arla", null, null, null, null, null, null, null, null);
+        Page<DabasItemResponse> page = new PageImpl<>(List.of(item), PageRequest.of(0, 10), 1);
+
+        cache.hits("mjolk", () -> load("1"));
+        assertEquals(List.of(item), cache.summaries("mjolk", () -> List.of(item)));
+        assertSame(page, cache.page("mjolk", 0, 10, () -> page));
+        assertNotSame(page, cache.page("mjolk", 1, 10, () -> new PageImpl<>(List.of())));
+
+        assertEquals(List.of("1"), cache.hits("mjolk", () -> load("2")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("An entry is loaded again once it has expired")
+    void expiresEntries() throws InterruptedException {
+        SearchResultCache cache = new SearchResultCache(DataSize.ofMegabytes(1), Duration.ofMillis(20));
+
+        cache.hits("mjolk", () -> load("1"));
+        Thread.sleep(50);
+
+        assertEquals(List.of("2"), cache.hits("mjolk", () -> load("2")));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("The least recently used entries are evicted when the size budget is exceeded")
+    void evictsLeastRecentlyUsed() {
+        SearchResultCache cache = new SearchResultCache(DataSize.ofBytes(600), Duration.ofMinutes(10));
+
+        cache.hits("a", () -> load("1"));
+        cache.hits("b", () -> load("2"));
+        cache.hits("a", () -> load("unused"));
+        cache.hits("c", () -> load("3"));
+        cache.hits("d", () -> load("4"));
+        assertEquals(4, loads.get());
+
+        assertEquals(List.of("1"), cache.hits("a", () -> load("reloaded")), "Recently used");
+        assertEquals(List.of("reloaded"), cache.hits("b", () -> load("reloaded")), "Evicted");
+        assertTrue(cache.getWeight() <= 600);
+    }
+
+    @Test
+    @DisplayName("An entry larger than the whole budget is not cached")
+    void skipsOversizedEntries() {
+        SearchResultCache cache = new SearchResultCache(DataSize.ofBytes(100), Duration.ofMinutes(10));
+
+        cache.hits("mjolk", () -> load("1", "2", "3"));
+        cache.hits("mjolk", () -> load("1", "2", "3"));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    @DisplayName("A change of the catalog clears the cache")
+    void clearsOnCatalogChange() {
+        SearchResultCache cache = new SearchResultCache(DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+        cache.hits("mjolk", () -> load("1"));
+
+        cache.onCatalogChanged(new DabasCatalogChangedEvent("test"));
+
+        assertEquals(0, cache.getWeight());
+        assertEquals(List.of("2"), cache.hits("mjolk", () -> load("2")));
+    }
+
+    @Test
+    @DisplayName("Results loaded while the cache was cleared are returned but not cached")
+    void skipsResultsOfAnOlderGeneration() {
+        SearchResultCache cache = new SearchResultCache(DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+
+        List<String> stale = cache.hits("mjolk", () -> {
+            cache.invalidateAll();
+            return load("stale");
+        });
+
+        assertEquals(List.of("stale"), stale);
+        assertEquals(List.of("fresh"), cache.hits("mjolk", () -> load("fresh")));
+    }
+}
@@ -0,0 +1,30 @@
+package com.guidopierri.pantrybe.services.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTextTest {
+
+    @Test
+    @DisplayName("A DABAS search is lowercased and its whitespace collapsed")
+    void query() {
+        assertEquals("lätt mjölk", SearchText.query("  Lätt \t MJÖLK \n"));
+        assertEquals(SearchText.query("Mjölk"), SearchText.query("mjölk"));
+        assertEquals("", SearchText.query("   "));
+    }
+
+    @Test
+    @DisplayName("A DABAS search keeps its diacritics")
+    void queryKeepsDiacritics() {
+        assertNotEquals(SearchText.query("mål"), SearchText.query("mal"));
+    }
+
+    @Test
+    @DisplayName("Normalizing a search also folds its diacritics")
+    void normalize() {
+        assertEquals("latt mjolk", SearchText.normalize("  Lätt   MJÖLK "));
+        assertEquals(SearchText.normalize("mål"), SearchText.normalize("mal"));
+    }
+}
@@ -0,0 +1,127 @@
+package com.guidopierri.pantrybe.services.search;
+
+import com.guidopierri.pantrybe.dtos.DabasItemSearchEntry;
+import com.guidopierri.pantrybe.dtos.ItemNameCount;
+import com.guidopierri.pantrybe.dtos.responses.SuggestionResponse;
+import com.guidopierri.pantrybe.repositories.DabasItemRepository;
+import com.guidopierri.pantrybe.repositories.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SuggestionIndexTest {
+    private DabasItemRepository dabasItemRepository;
+    private SuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        dabasItemRepository = mock(DabasItemRepository.class);
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        // The folded suffixes, sorted, run from "agg" to "zucchini".
+        when(dabasItemRepository.findAllSearchEntries()).thenReturn(List.of(
+                new DabasItemSearchEntry(1, "Mjölk", "Arla"),
+                new DabasItemSearchEntry(2, "Mjölk", "Skånemejerier"),
+                new DabasItemSearchEntry(3, "Lätt Mjölk", "Arla"),
+                new DabasItemSearchEntry(4, "Mjölk Mjölkdryck", null),
+                new DabasItemSearchEntry(5, "Ägg", "Kronägg"),
+                new DabasItemSearchEntry(6, "Zucchini", " ")));
+        when(itemRepository.countByName()).thenReturn(List.of(
+                new ItemNameCount("Lätt mjölk", 10),
+                new ItemNameCount("Okänd vara", 3)));
+        index = new SuggestionIndex(dabasItemRepository, itemRepository);
+    }
+
+    private List<String> texts(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream().map(SuggestionResponse::text).toList();
+    }
+
+    @Test
+    @DisplayName("An index that was never built suggests nothing")
+    void emptyIndex() {
+        assertEquals(List.of(), index.suggest("mjolk", 5));
+    }
+
+    @Test
+    @DisplayName("A missing or blank prefix or a limit of zero suggests nothing")
+    void invalidArguments() {
+        index.rebuild();
+
+        assertEquals(List.of(), index.suggest(null, 5));
+        assertEquals(List.of(), index.suggest("   ", 5));
+        assertEquals(List.of(), index.suggest("mjolk", 0));
+    }
+
+    @Test
+    @DisplayName("Suggestions are ranked by the articles and pantry items carrying them")
+    void popularity() {
+        index.rebuild();
+
+        assertEquals(List.of(
+                new SuggestionResponse("Lätt Mjölk", 11),
+                new SuggestionResponse("Mjölk", 2),
+                new SuggestionResponse("Mjölk Mjölkdryck", 1)), index.suggest("mjol", 10));
+    }
+
+    @Test
+    @DisplayName("A suggestion matched by several of its words is suggested once")
+    void deduplicates() {
+        index.rebuild();
+
+        assertEquals(List.of("Mjölk Mjölkdryck"), texts("mjolkd", 10));
+        assertEquals(1, texts("mjolk", 10).stream().filter("Mjölk Mjölkdryck"::equals).count());
+    }
+
+    @Test
+    @DisplayName("The prefix is folded like the suggestions")
+    void folding() {
+        index.rebuild();
+
+        assertEquals(texts("mjol", 10), texts(" MJÖL ", 10));
+        assertEquals(List.of("Skånemejerier"), texts("skane", 10));
+    }
+
+    @Test
+    @DisplayName("The limit cuts the most popular suggestions")
+    void limit() {
+        index.rebuild();
+
+        assertEquals(List.of("Lätt Mjölk"), texts("mjol", 1));
+        assertEquals(List.of("Lätt Mjölk", "Mjölk"), texts("mjol", 2));
+    }
+
+    @Test
+    @DisplayName("Prefixes matching the first and the last suffix are found")
+    void arrayBoundaries() {
+        index.rebuild();
+
+        assertEquals(List.of("Arla", "Ägg"), texts("a", 10));
+        assertEquals(List.of("Zucchini"), texts("zucchini", 10));
+    }
+
+    @Test
+    @DisplayName("Prefixes before, after or longer than every suffix suggest nothing")
+    void outsideSuffixes() {
+        index.rebuild();
+
+        assertEquals(List.of(), texts("0", 10));
+        assertEquals(List.of(), texts("zz", 10));
+        assertEquals(List.of(), texts("zucchinis", 10));
+    }
+
+    @Test
+    @DisplayName("A failed rebuild keeps the previous suggestions")
+    void failedRebuild() {
+        index.rebuild();
+        when(dabasItemRepository.findAllSearchEntries()).thenThrow(new IllegalStateException("Database unavailable"));
+
+        index.rebuild();
+
+        assertEquals(List.of("Zucchini"), texts("zuc", 10));
+    }
+}